@@ -0,0 +1,491 @@
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the ColorBulk loops, built on the incubating Vector API. Every lane does the exact same
+ * float operations as the scalar code in ColorEngine, so results are bit for bit identical; the branches
+ * (hue sextant, grey pixels, pure black) are computed for all lanes and then selected per lane with masks and shifts.
+ * <br>
+ * <br>
+ * This class lives in its own source root and needs --add-modules jdk.incubator.vector to compile and run. ColorBulk
+ * loads it by name, so the rest of the tree builds without it and keeps its scalar loops if it is missing.
+ * Pixels are read from argb[argbOffset + i] for every index i in [from, to), the planes are indexed with i directly.
+ * Blocks with values outside of the usual ranges (hues outside of one turn, results outside of [0, 255]) are redone
+ * by the scalar code, which also throws the usual exceptions.
+ * <br>
+ * <br>
+ * Every loop is small and has everything written out. The JIT only keeps vectors in registers when it can intrinsify
+ * every operation of a compilation, so bigger bodies make it fall back to boxed vectors. That is also why the longer
+ * conversions back to pixels are split into several loops, passing packed candidates through the output array.
+ */
+final class VectorKernels implements BulkKernels {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = INTS.length();
+
+    /**
+     * Per sextant of the hue, the shift that brings the right candidate into the lowest byte, in fields of SHIFT_BITS bits.
+     * For HSB/HSV the candidates are brightness, p, q and t in bytes 3 to 0, as in the cases of ColorEngine.hsbToRgb.
+     * For HSL they are the corrector plus chroma, plus componentX and plus nothing in bytes 2 to 0, as in ColorEngine.hslToPacked.
+     */
+    private static final int SHIFT_BITS = 5;
+    private static final int HSB_RED_SHIFTS = shifts(24, 8, 16, 16, 0, 24);
+    private static final int HSB_GREEN_SHIFTS = shifts(0, 24, 24, 8, 16, 16);
+    private static final int HSB_BLUE_SHIFTS = shifts(16, 16, 0, 24, 24, 8);
+    private static final int HSL_RED_SHIFTS = shifts(16, 8, 0, 0, 8, 16);
+    private static final int HSL_GREEN_SHIFTS = shifts(8, 16, 16, 8, 0, 0);
+    private static final int HSL_BLUE_SHIFTS = shifts(0, 0, 8, 16, 16, 8);
+
+    /**
+     * Only created by ColorBulk.
+     */
+    VectorKernels() {}
+
+    /**
+     * Methods that convert ARGB pixels into planar components.
+     */
+    @Override
+    public void toHSBHSV(int[] argb, int argbOffset, float[] hue, float[] sat, float[] brt, int from, int to) {
+        int i = from;
+
+        for (; i <= to - LANES; i += LANES) {
+            final IntVector rgb = IntVector.fromArray(INTS, argb, argbOffset + i);
+            final FloatVector max = toFloat(cmax(rgb));
+            final FloatVector range = max.sub(toFloat(cmin(rgb)));
+
+            // hsbHue. Channel differences are small whole numbers, so they are exact as floats.
+            final FloatVector redDistance = max.sub(toFloat(channel(rgb, 16)));
+            final FloatVector greenDistance = max.sub(toFloat(channel(rgb, 8)));
+            final FloatVector blueDistance = max.sub(toFloat(channel(rgb, 0)));
+
+            final FloatVector redc = redDistance.div(range);
+            final FloatVector greenc = greenDistance.div(range);
+            final FloatVector bluec = blueDistance.div(range);
+
+            final VectorMask<Float> redMax = redDistance.eq(0f);
+            final VectorMask<Float> greenMax = greenDistance.eq(0f).andNot(redMax);
+
+            final FloatVector sixths = greenc.add(4f).sub(redc)
+                    .blend(redc.add(2f).sub(bluec), greenMax)
+                    .blend(bluec.sub(greenc), redMax)
+                    .div(6f);
+
+            sixths.blend(sixths.add(1f), sixths.lt(0f)).blend(0f, range.eq(0f)).intoArray(hue, i);
+            range.div(max).blend(0f, max.eq(0f)).intoArray(sat, i);
+            max.div(255f).intoArray(brt, i);
+        }
+
+        for (; i < to; i++) {
+            final int rgb = argb[argbOffset + i];
+            hue[i] = ColorEngine.hsbHue(rgb);
+            sat[i] = ColorEngine.hsbSaturation(rgb);
+            brt[i] = ColorEngine.hsbBrightness(rgb);
+        }
+    }
+
+    @Override
+    public void toHSL(int[] argb, int argbOffset, float[] hue, float[] sat, float[] lgt, int from, int to) {
+        int i = from;
+
+        for (; i <= to - LANES; i += LANES) {
+            final IntVector rgb = IntVector.fromArray(INTS, argb, argbOffset + i);
+            final FloatVector max = toFloat(cmax(rgb));
+            final FloatVector range = max.sub(toFloat(cmin(rgb)));
+
+            final FloatVector redDistance = max.sub(toFloat(channel(rgb, 16)));
+            final FloatVector greenDistance = max.sub(toFloat(channel(rgb, 8)));
+            final FloatVector blueDistance = max.sub(toFloat(channel(rgb, 0)));
+
+            final FloatVector redc = redDistance.div(range);
+            final FloatVector greenc = greenDistance.div(range);
+            final FloatVector bluec = blueDistance.div(range);
+
+            final VectorMask<Float> redMax = redDistance.eq(0f);
+            final VectorMask<Float> greenMax = greenDistance.eq(0f).andNot(redMax);
+
+            final FloatVector sixths = greenc.add(4f).sub(redc)
+                    .blend(redc.add(2f).sub(bluec), greenMax)
+                    .blend(bluec.sub(greenc), redMax)
+                    .div(6f);
+
+            final FloatVector brightness = max.div(255f);
+            final FloatVector saturation = range.div(max).blend(0f, max.eq(0f));
+            final FloatVector lightness = FloatVector.broadcast(FLOATS, 2f).sub(saturation).mul(brightness).div(2f);
+
+            // sInHSBtoHSL: (b - l) / min(l, 1 - l), or 0 for black and white.
+            final FloatVector hslSaturation = brightness.sub(lightness).div(lightness.min(FloatVector.broadcast(FLOATS, 1f).sub(lightness)));
+
+            sixths.blend(sixths.add(1f), sixths.lt(0f)).blend(0f, range.eq(0f)).mul(360f).intoArray(hue, i);
+            hslSaturation.blend(0f, lightness.eq(0f).or(lightness.eq(1f))).intoArray(sat, i);
+            lightness.intoArray(lgt, i);
+        }
+
+        for (; i < to; i++) {
+            final int rgb = argb[argbOffset + i];
+            final float lightness = ColorEngine.hslLightness(rgb);
+            hue[i] = ColorEngine.hsbHue(rgb) * 360f;
+            sat[i] = ColorEngine.sInHSBtoHSL(ColorEngine.hsbBrightness(rgb), lightness);
+            lgt[i] = lightness;
+        }
+    }
+
+    @Override
+    public void toCMYK(int[] argb, int argbOffset, float[] c, float[] m, float[] y, float[] k, int from, int to) {
+        int i = from;
+
+        for (; i <= to - LANES; i += LANES) {
+            final IntVector rgb = IntVector.fromArray(INTS, argb, argbOffset + i);
+            final FloatVector redPrime = toFloat(channel(rgb, 16)).div(255f);
+            final FloatVector greenPrime = toFloat(channel(rgb, 8)).div(255f);
+            final FloatVector bluePrime = toFloat(channel(rgb, 0)).div(255f);
+
+            final FloatVector one = FloatVector.broadcast(FLOATS, 1f);
+            final FloatVector blackKey = one.sub(redPrime.max(greenPrime).max(bluePrime));
+            final FloatVector remaining = one.sub(blackKey);
+            final VectorMask<Float> black = blackKey.eq(1f);
+
+            // cmykComponent: (1 - channel / 255 - k) / (1 - k), or 0 for pure black.
+            one.sub(redPrime).sub(blackKey).div(remaining).blend(0f, black).intoArray(c, i);
+            one.sub(greenPrime).sub(blackKey).div(remaining).blend(0f, black).intoArray(m, i);
+            one.sub(bluePrime).sub(blackKey).div(remaining).blend(0f, black).intoArray(y, i);
+            blackKey.intoArray(k, i);
+        }
+
+        for (; i < to; i++) {
+            final int rgb = argb[argbOffset + i];
+            final float blackKey = ColorEngine.cmykBlackKey(rgb);
+            c[i] = ColorEngine.cmykComponent(ColorEngine.red(rgb), blackKey);
+            m[i] = ColorEngine.cmykComponent(ColorEngine.green(rgb), blackKey);
+            y[i] = ColorEngine.cmykComponent(ColorEngine.blue(rgb), blackKey);
+            k[i] = blackKey;
+        }
+    }
+
+    /**
+     * Methods that convert planar components back into opaque ARGB pixels, written to argb[argbOffset + i].
+     * <br>
+     * <br>
+     * Same algorithm as java.awt.Color.HSBtoRGB.
+     */
+    @Override
+    public void fromHSBHSV(float[] hue, float[] sat, float[] brt, int[] argb, int argbOffset, int opaque, int from, int to) {
+        int i = from;
+
+        while (i < to) {
+            i = lanesHSBHSV(hue, sat, brt, argb, argbOffset, opaque, i, to);
+
+            final int end = Math.min(i + LANES, to);
+            scalarHSBHSV(hue, sat, brt, argb, argbOffset, opaque, i, end);
+            i = end;
+        }
+    }
+
+    /**
+     * Source: <a href="https://en.wikipedia.org/wiki/HSL_and_HSV#HSL_to_RGB">Wikipedia: HSL and HSV</a>.
+     */
+    @Override
+    public void fromHSL(float[] hue, float[] sat, float[] lgt, int[] argb, int argbOffset, int opaque, int from, int to) {
+        int i = from;
+
+        while (i < to) {
+            i = lanesHSL(hue, sat, lgt, argb, argbOffset, opaque, i, to);
+
+            final int end = Math.min(i + LANES, to);
+            scalarHSL(hue, sat, lgt, argb, argbOffset, opaque, i, end);
+            i = end;
+        }
+    }
+
+    /**
+     * Source: <a href="https://www.rapidtables.com/convert/color/cmyk-to-rgb.html">rapidtables</a>.
+     */
+    @Override
+    public void fromCMYK(float[] c, float[] m, float[] y, float[] k, int[] argb, int argbOffset, int opaque, int from, int to) {
+        int i = from;
+
+        while (i < to) {
+            i = lanesCMYK(c, m, y, k, argb, argbOffset, opaque, i, to);
+
+            final int end = Math.min(i + LANES, to);
+            scalarCMYK(c, m, y, k, argb, argbOffset, opaque, i, end);
+            i = end;
+        }
+    }
+
+    /**
+     * The vector loops behind the methods above. Each one stops at the first block it can't do in lanes and returns
+     * its index, so the scalar code for that block is never called while vectors are alive (they would have to be boxed).
+     * <br>
+     * <br>
+     * Only hues in [0, 1) are done in lanes, where hue - floor(hue) is the hue itself.
+     * Grey pixels need no special case there: with a saturation of 0, p, q and t all equal the brightness.
+     * The four candidates are packed into the bytes of one int and each channel shifts its byte out, with the shift
+     * looked up per sextant from the HSB_*_SHIFTS tables. Blocks where a candidate doesn't fit into a byte are left
+     * to the scalar code, which packs them the way java.awt.Color does.
+     */
+    private static int lanesHSBHSV(float[] hue, float[] sat, float[] brt, int[] argb, int argbOffset, int opaque, int from, int to) {
+        final int end = candidatesHSBHSV(hue, sat, brt, argb, argbOffset, from, to);
+        pickHSBHSV(hue, argb, argbOffset, opaque, from, end);
+
+        return end;
+    }
+
+    /**
+     * First half of lanesHSBHSV, kept apart so each loop stays small enough to be compiled without boxing.
+     * Writes the packed candidates into the pixels, where pickHSBHSV replaces them with the colors.
+     */
+    private static int candidatesHSBHSV(float[] hue, float[] sat, float[] brt, int[] argb, int argbOffset, int from, int to) {
+        int i = from;
+
+        for (; i <= to - LANES; i += LANES) {
+            final FloatVector hues = FloatVector.fromArray(FLOATS, hue, i);
+
+            if (!hues.compare(VectorOperators.GE, 0f).and(hues.lt(1f)).allTrue()) {
+                break;
+            }
+
+            final FloatVector s = FloatVector.fromArray(FLOATS, sat, i);
+            final FloatVector b = FloatVector.fromArray(FLOATS, brt, i);
+
+            final FloatVector h = hues.mul(6f);
+            final FloatVector f = h.sub(toFloat(toInt(h)));
+            final FloatVector one = FloatVector.broadcast(FLOATS, 1f);
+
+            final IntVector bi = toInt(b.mul(255f).add(0.5f));
+            final IntVector pi = toInt(b.mul(one.sub(s)).mul(255f).add(0.5f));
+            final IntVector qi = toInt(b.mul(one.sub(s.mul(f))).mul(255f).add(0.5f));
+            final IntVector ti = toInt(b.mul(one.sub(s.mul(one.sub(f)))).mul(255f).add(0.5f));
+
+            if (!bi.or(pi).or(qi).or(ti).and(~0xFF).eq(0).allTrue()) {
+                break;
+            }
+
+            bi.lanewise(VectorOperators.LSHL, 24)
+                    .or(pi.lanewise(VectorOperators.LSHL, 16))
+                    .or(qi.lanewise(VectorOperators.LSHL, 8))
+                    .or(ti)
+                    .intoArray(argb, argbOffset + i);
+        }
+
+        return i;
+    }
+
+    private static void pickHSBHSV(float[] hue, int[] argb, int argbOffset, int opaque, int from, int to) {
+        for (int i = from; i < to; i += LANES) {
+            final IntVector candidates = IntVector.fromArray(INTS, argb, argbOffset + i);
+            final IntVector tableShift = toInt(FloatVector.fromArray(FLOATS, hue, i).mul(6f)).mul(SHIFT_BITS);
+
+            final IntVector r = pick(candidates, HSB_RED_SHIFTS, tableShift);
+            final IntVector g = pick(candidates, HSB_GREEN_SHIFTS, tableShift);
+            final IntVector b = pick(candidates, HSB_BLUE_SHIFTS, tableShift);
+
+            pack(r, g, b).or(opaque).intoArray(argb, argbOffset + i);
+        }
+    }
+
+    /**
+     * Only hues in [0, 360) are done in lanes, where floor(huePrime) is a plain truncation. Saturation and lightness
+     * have to be in [0, 1] as well, then the corrector is at least 0 and no sum goes past 1, so nothing is out of range.
+     * <br>
+     * <br>
+     * Every channel is the corrector plus chroma, plus componentX or plus nothing, so those three sums are rounded as
+     * candidates and picked per sextant, just like in lanesHSBHSV. This takes three loops to keep each of them small.
+     */
+    private static int lanesHSL(float[] hue, float[] sat, float[] lgt, int[] argb, int argbOffset, int opaque, int from, int to) {
+        final int end = componentXHSL(hue, sat, lgt, argb, argbOffset, from, candidatesHSL(sat, lgt, argb, argbOffset, from, to));
+        pickHSL(hue, argb, argbOffset, opaque, from, end);
+
+        return end;
+    }
+
+    /**
+     * Writes the rounded corrector plus chroma and plus nothing into bytes 2 and 0 of the pixels.
+     */
+    private static int candidatesHSL(float[] sat, float[] lgt, int[] argb, int argbOffset, int from, int to) {
+        int i = from;
+
+        for (; i <= to - LANES; i += LANES) {
+            final FloatVector s = FloatVector.fromArray(FLOATS, sat, i);
+            final FloatVector l = FloatVector.fromArray(FLOATS, lgt, i);
+
+            if (!unit(s).and(unit(l)).allTrue()) {
+                break;
+            }
+
+            final FloatVector chroma = chroma(s, l);
+            final FloatVector corrector = l.sub(chroma.div(2f));
+
+            // 0f + corrector instead of the corrector itself, as in the scalar code (it turns -0f into 0f).
+            round(chroma.add(corrector).mul(255f)).lanewise(VectorOperators.LSHL, 16)
+                    .or(round(corrector.add(0f).mul(255f)))
+                    .intoArray(argb, argbOffset + i);
+        }
+
+        return i;
+    }
+
+    /**
+     * Adds the rounded corrector plus componentX as byte 1.
+     */
+    private static int componentXHSL(float[] hue, float[] sat, float[] lgt, int[] argb, int argbOffset, int from, int to) {
+        int i = from;
+
+        for (; i <= to - LANES; i += LANES) {
+            final FloatVector huePrime = FloatVector.fromArray(FLOATS, hue, i).div(60f);
+
+            if (!huePrime.compare(VectorOperators.GE, 0f).and(huePrime.lt(6f)).allTrue()) {
+                break;
+            }
+
+            final FloatVector l = FloatVector.fromArray(FLOATS, lgt, i);
+            final FloatVector chroma = chroma(FloatVector.fromArray(FLOATS, sat, i), l);
+
+            // huePrime % 2, exact since both huePrime and the whole number subtracted from it are below 6.
+            final FloatVector remainder = huePrime.sub(toFloat(toInt(huePrime.div(2f))).mul(2f));
+            final FloatVector componentX = chroma.mul(FloatVector.broadcast(FLOATS, 1f).sub(remainder.sub(1f).abs()));
+
+            round(componentX.add(l.sub(chroma.div(2f))).mul(255f)).lanewise(VectorOperators.LSHL, 8)
+                    .or(IntVector.fromArray(INTS, argb, argbOffset + i))
+                    .intoArray(argb, argbOffset + i);
+        }
+
+        return i;
+    }
+
+    private static void pickHSL(float[] hue, int[] argb, int argbOffset, int opaque, int from, int to) {
+        for (int i = from; i < to; i += LANES) {
+            final IntVector candidates = IntVector.fromArray(INTS, argb, argbOffset + i);
+            final IntVector tableShift = toInt(FloatVector.fromArray(FLOATS, hue, i).div(60f)).mul(SHIFT_BITS);
+
+            final IntVector r = pick(candidates, HSL_RED_SHIFTS, tableShift);
+            final IntVector g = pick(candidates, HSL_GREEN_SHIFTS, tableShift);
+            final IntVector b = pick(candidates, HSL_BLUE_SHIFTS, tableShift);
+
+            pack(r, g, b).or(opaque).intoArray(argb, argbOffset + i);
+        }
+    }
+
+    private static int lanesCMYK(float[] c, float[] m, float[] y, float[] k, int[] argb, int argbOffset, int opaque, int from, int to) {
+        int i = from;
+
+        for (; i <= to - LANES; i += LANES) {
+            final FloatVector one = FloatVector.broadcast(FLOATS, 1f);
+            final FloatVector scale = one.sub(FloatVector.fromArray(FLOATS, k, i));
+
+            final FloatVector r = one.sub(FloatVector.fromArray(FLOATS, c, i)).mul(255f).mul(scale);
+            final FloatVector g = one.sub(FloatVector.fromArray(FLOATS, m, i)).mul(255f).mul(scale);
+            final FloatVector b = one.sub(FloatVector.fromArray(FLOATS, y, i)).mul(255f).mul(scale);
+
+            if (outsideChannel(r).or(outsideChannel(g)).or(outsideChannel(b)).anyTrue()) {
+                break;
+            }
+
+            pack(round(r), round(g), round(b)).or(opaque).intoArray(argb, argbOffset + i);
+        }
+
+        return i;
+    }
+
+    /**
+     * Scalar loops for the tails and for the blocks the lanes don't handle.
+     */
+    private static void scalarHSBHSV(float[] hue, float[] sat, float[] brt, int[] argb, int argbOffset, int opaque, int from, int to) {
+        for (int i = from; i < to; i++) {
+            argb[argbOffset + i] = opaque | ColorEngine.hsbToRgb(hue[i], sat[i], brt[i]);
+        }
+    }
+
+    private static void scalarHSL(float[] hue, float[] sat, float[] lgt, int[] argb, int argbOffset, int opaque, int from, int to) {
+        for (int i = from; i < to; i++) {
+            argb[argbOffset + i] = opaque | ColorEngine.hslToRgb(hue[i], sat[i], lgt[i]);
+        }
+    }
+
+    private static void scalarCMYK(float[] c, float[] m, float[] y, float[] k, int[] argb, int argbOffset, int opaque, int from, int to) {
+        for (int i = from; i < to; i++) {
+            argb[argbOffset + i] = opaque | ColorEngine.cmykToRgb(c[i], m[i], y[i], k[i]);
+        }
+    }
+
+    /**
+     * Helper methods for single lane operations.
+     */
+    private static IntVector channel(IntVector rgb, int shift) {
+        return rgb.lanewise(VectorOperators.ASHR, shift).and(0xFF);
+    }
+
+    private static IntVector cmax(IntVector rgb) {
+        return channel(rgb, 16).max(channel(rgb, 8)).max(channel(rgb, 0));
+    }
+
+    private static IntVector cmin(IntVector rgb) {
+        return channel(rgb, 16).min(channel(rgb, 8)).min(channel(rgb, 0));
+    }
+
+    private static IntVector pack(IntVector r, IntVector g, IntVector b) {
+        return r.lanewise(VectorOperators.LSHL, 16).or(g.lanewise(VectorOperators.LSHL, 8)).or(b);
+    }
+
+    /**
+     * The byte of the packed candidates whose shift the table has for the lane's sextant.
+     */
+    private static IntVector pick(IntVector candidates, int shifts, IntVector tableShift) {
+        final IntVector shift = IntVector.broadcast(INTS, shifts).lanewise(VectorOperators.LSHR, tableShift).and((1 << SHIFT_BITS) - 1);
+
+        return candidates.lanewise(VectorOperators.LSHR, shift).and(0xFF);
+    }
+
+    private static int shifts(int... perSextant) {
+        int table = 0;
+
+        for (int sextant = 0; sextant < perSextant.length; sextant++) {
+            table |= perSextant[sextant] << (sextant * SHIFT_BITS);
+        }
+
+        return table;
+    }
+
+    /**
+     * Conversions between lane types. Float to int truncates and saturates like a Java cast.
+     * The target species is passed explicitly, the JIT can only intrinsify conversions to a constant species.
+     */
+    private static FloatVector toFloat(IntVector v) {
+        return (FloatVector) v.convertShape(VectorOperators.I2F, FLOATS, 0);
+    }
+
+    private static IntVector toInt(FloatVector v) {
+        return (IntVector) v.convertShape(VectorOperators.F2I, INTS, 0);
+    }
+
+    /**
+     * Math.round for lanes within [-0.5, 255.5). Below 0.5 the sum would round up for 0.49999997f, so those lanes
+     * are cleared before the conversion.
+     */
+    private static IntVector round(FloatVector v) {
+        return toInt(v.add(0.5f).blend(0f, v.lt(0.5f)));
+    }
+
+    /**
+     * HSL chroma, (1 - |2 * lightness - 1|) * saturation.
+     */
+    private static FloatVector chroma(FloatVector s, FloatVector l) {
+        return FloatVector.broadcast(FLOATS, 1f).sub(l.mul(2f).sub(1f).abs()).mul(s);
+    }
+
+    /**
+     * Lanes within [0, 1], NaN excluded.
+     */
+    private static VectorMask<Float> unit(FloatVector v) {
+        return v.compare(VectorOperators.GE, 0f).and(v.compare(VectorOperators.LE, 1f));
+    }
+
+    /**
+     * Lanes where Math.round ends up outside of [0, 255].
+     */
+    private static VectorMask<Float> outsideChannel(FloatVector v) {
+        return v.lt(-0.5f).or(v.compare(VectorOperators.GE, 255.5f));
+    }
+}
@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Color vision deficiency simulation and WCAG 2.x contrast, for single colors and whole palettes.
+ * <br>
+ * <br>
+ * The palette audit counts, for every color, the other colors it reaches a minimum contrast ratio with. The ratio
+ * only depends on relative luminance and grows the further two luminances are apart, so with the luminances sorted
+ * the partners of a color are a prefix and a suffix of the sorted array. Two binary searches find them, the pairs
+ * that fail are never visited. Thousands of colors, i.e. millions of pairs, take milliseconds.
+ */
+public final class Accessibility {
+    /**
+     * WCAG 2.x minimum contrast ratios: AA for large text, AA for normal text, AAA for normal text.
+     */
+    public static final double AA_LARGE = 3.0;
+    public static final double AA = 4.5;
+    public static final double AAA = 7.0;
+
+    /**
+     * Dichromacies with simulation matrices for linear RGB at full severity.
+     * <br>
+     * <br>
+     * Source: <a href="https://www.inf.ufrgs.br/~oliveira/pubs_files/CVD_Simulation/CVD_Simulation.html">Machado, Oliveira
+     * and Fernandes (2009): A Physiologically-based Model for Simulation of Color Vision Deficiency</a>.
+     */
+    public enum Deficiency {
+        PROTANOPIA(
+                0.152286, 1.052583, -0.204868,
+                0.114503, 0.786281, 0.099216,
+                -0.003882, -0.048116, 1.051998),
+        DEUTERANOPIA(
+                0.367322, 0.860646, -0.227968,
+                0.280085, 0.672501, 0.047413,
+                -0.011820, 0.042940, 0.968881),
+        TRITANOPIA(
+                1.255528, -0.076749, -0.178779,
+                -0.078411, 0.930809, 0.147602,
+                0.004733, 0.691367, 0.303900);
+
+        private final double[] matrix;
+
+        Deficiency(double... matrix) {
+            this.matrix = matrix;
+        }
+    }
+
+    /**
+     * Utility Class for accessibility checks.
+     */
+    private Accessibility() {}
+
+    /**
+     * Methods that simulate a deficiency.
+     * <br>
+     * <br>
+     * The packed color as seen with the deficiency.
+     */
+    public static int simulate(int rgb, Deficiency deficiency) {
+        final double[] m = deficiency.matrix;
+        final double r = PerceptualColor.linear(ColorEngine.red(rgb));
+        final double g = PerceptualColor.linear(ColorEngine.green(rgb));
+        final double b = PerceptualColor.linear(ColorEngine.blue(rgb));
+
+        return PerceptualColor.linearToClipped(
+                m[0] * r + m[1] * g + m[2] * b,
+                m[3] * r + m[4] * g + m[5] * b,
+                m[6] * r + m[7] * g + m[8] * b);
+    }
+
+    /**
+     * Simulates every ARGB pixel, keeping its alpha. Input and output may be the same array.
+     */
+    public static int[] simulate(int[] argb, Deficiency deficiency, int[] out) {
+        if (out.length < argb.length) {
+            throw new IllegalArgumentException("Output of length " + out.length + " is too short for " + argb.length + " pixels");
+        }
+
+        ColorBulk.forRange(argb.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = argb[i] & 0xFF000000 | simulate(argb[i], deficiency);
+            }
+        });
+
+        return out;
+    }
+
+    /**
+     * Methods for WCAG contrast.
+     * <br>
+     * <br>
+     * Source: <a href="https://www.w3.org/TR/WCAG21/#dfn-relative-luminance">WCAG 2.1: relative luminance</a>.
+     * The sRGB decoding differs from WCAG's 0.03928 threshold only between 8-bit values, so the results are the same.
+     */
+    public static double relativeLuminance(int rgb) {
+        return 0.2126 * PerceptualColor.linear(ColorEngine.red(rgb))
+                + 0.7152 * PerceptualColor.linear(ColorEngine.green(rgb))
+                + 0.0722 * PerceptualColor.linear(ColorEngine.blue(rgb));
+    }
+
+    /**
+     * Source: <a href="https://www.w3.org/TR/WCAG21/#dfn-contrast-ratio">WCAG 2.1: contrast ratio</a>. In [1, 21].
+     */
+    public static double contrastRatio(int foreground, int background) {
+        return contrastRatio(relativeLuminance(foreground), relativeLuminance(background));
+    }
+
+    public static double contrastRatio(double luminance, double otherLuminance) {
+        return (Math.max(luminance, otherLuminance) + 0.05) / (Math.min(luminance, otherLuminance) + 0.05);
+    }
+
+    /**
+     * Result of a palette audit. partners[i] is the number of other colors that reach the minimum ratio with colors[i],
+     * as they are or as seen with the deficiency (null for normal vision).
+     */
+    public record Audit(int[] colors, Deficiency deficiency, double minRatio, int[] partners) {
+        /**
+         * Number of unordered pairs that reach the minimum ratio.
+         */
+        public long passingPairs() {
+            long sum = 0;
+
+            for (int count : partners) {
+                sum += count;
+            }
+
+            return sum / 2;
+        }
+
+        public long pairs() {
+            return (long) colors.length * (colors.length - 1) / 2;
+        }
+    }
+
+    /**
+     * Audits all pairs of the palette for the minimum contrast ratio (e.g. AA), as seen with the deficiency
+     * or with normal vision if it is null.
+     */
+    public static Audit audit(int[] palette, double minRatio, Deficiency deficiency) {
+        if (!(minRatio > 1)) {
+            throw new IllegalArgumentException("The minimum contrast ratio must be above 1, not " + minRatio);
+        }
+
+        final int size = palette.length;
+        final double[] luminances = new double[size];
+
+        ColorBulk.forRange(size, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                luminances[i] = relativeLuminance(deficiency == null ? palette[i] : simulate(palette[i], deficiency));
+            }
+        });
+
+        final double[] sorted = luminances.clone();
+        Arrays.sort(sorted);
+
+        final int[] partners = new int[size];
+
+        ColorBulk.forRange(size, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                partners[i] = darkerPartners(sorted, luminances[i], minRatio) + brighterPartners(sorted, luminances[i], minRatio);
+            }
+        });
+
+        return new Audit(palette.clone(), deficiency, minRatio, partners);
+    }
+
+    /**
+     * Audits with normal vision and every deficiency and writes one line per color: the color in HEX, its relative
+     * luminance and its number of partners for each vision.
+     */
+    public static Audit[] write(int[] palette, double minRatio, Writer out) throws IOException {
+        final Deficiency[] deficiencies = Deficiency.values();
+        final Audit[] audits = new Audit[deficiencies.length + 1];
+
+        audits[0] = audit(palette, minRatio, null);
+
+        for (int i = 0; i < deficiencies.length; i++) {
+            audits[i + 1] = audit(palette, minRatio, deficiencies[i]);
+        }
+
+        final StringBuilder line = new StringBuilder(128).append("HEX\tLuminance\tNormal");
+
+        for (Deficiency deficiency : deficiencies) {
+            line.append('\t').append(deficiency.name().charAt(0)).append(deficiency.name().substring(1).toLowerCase(Locale.ROOT));
+        }
+
+        out.append(line.append(System.lineSeparator()));
+
+        for (int i = 0; i < palette.length; i++) {
+            line.setLength(0);
+            ColorFormatter.append(ColorSpace.HEX, 1, palette[i], line)
+                    .append('\t').append(String.format(Locale.ROOT, "%.4f", relativeLuminance(palette[i])));
+
+            for (Audit audit : audits) {
+                line.append('\t').append(audit.partners()[i]);
+            }
+
+            out.append(line.append(System.lineSeparator()));
+        }
+
+        return audits;
+    }
+
+    /**
+     * Helper methods for the sorted luminances.
+     * <br>
+     * <br>
+     * The ratio to a darker color shrinks the closer it gets, so the darker partners are a prefix of the array.
+     * Returns its length, found by binary search on the ratio itself so no boundary rounds differently.
+     */
+    private static int darkerPartners(double[] sorted, double luminance, double minRatio) {
+        int low = 0;
+        int high = upperBound(sorted, luminance);
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (contrastRatio(luminance, sorted[middle]) >= minRatio) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Same for the brighter partners, a suffix of the array.
+     */
+    private static int brighterPartners(double[] sorted, double luminance, double minRatio) {
+        int low = upperBound(sorted, luminance);
+        int high = sorted.length;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (contrastRatio(luminance, sorted[middle]) >= minRatio) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        return sorted.length - low;
+    }
+
+    /**
+     * Index of the first value above the given one.
+     */
+    private static int upperBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (sorted[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
@@ -0,0 +1,311 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Small self-contained benchmark harness for every public ColorCalc method, started with "ColorCalc bench".
+ * There is no build tool to pull in JMH, so this does the important parts by hand: warmup, throughput,
+ * latency percentiles from individually timed calls, and allocated bytes per call from the thread allocation counter.
+ * <br>
+ * <br>
+ * Inputs are random but seeded, so runs are comparable with each other.
+ */
+public final class Benchmark {
+    private static final int INPUTS = 1 << 12;
+    private static final int INPUT_MASK = INPUTS - 1;
+    private static final int LATENCY_SAMPLES = 1 << 16;
+    private static final long SEED = 0xC010CA1CL;
+
+    /**
+     * Results are folded into this field, so the JIT can't remove the measured calls.
+     */
+    private static volatile int sink;
+
+    /**
+     * Utility Class for benchmarking.
+     */
+    private Benchmark() {}
+
+    /**
+     * A measured call on the input with the given index. Returns something derived from the result for the sink.
+     */
+    @FunctionalInterface
+    interface Operation {
+        int run(int index);
+    }
+
+    private record Case(String name, Operation operation) {}
+
+    /**
+     * Runs all cases whose name contains the filter (or all of them) and prints one line per case.
+     */
+    public static void run(String filter, double warmupSeconds, double measureSeconds) {
+        final List<Case> cases = cases();
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        System.out.printf(Locale.US, "%-32s %14s %10s %10s %10s %10s %12s%n",
+                "Benchmark", "ops/s", "p50 ns", "p90 ns", "p99 ns", "p99.9 ns", "bytes/op");
+
+        for (Case c : cases) {
+            if (filter != null && !c.name().contains(filter)) {
+                continue;
+            }
+
+            loop(c.operation(), seconds(warmupSeconds));
+
+            final long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            final long start = System.nanoTime();
+            final long ops = loop(c.operation(), seconds(measureSeconds));
+            final long elapsed = System.nanoTime() - start;
+            final long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+            final long[] latencies = latencies(c.operation());
+
+            System.out.printf(Locale.US, "%-32s %14.0f %10d %10d %10d %10d %12.1f%n",
+                    c.name(),
+                    ops * 1e9 / elapsed,
+                    percentile(latencies, 0.5),
+                    percentile(latencies, 0.9),
+                    percentile(latencies, 0.99),
+                    percentile(latencies, 0.999),
+                    (double) allocated / ops);
+        }
+    }
+
+    /**
+     * All measured methods together with their inputs.
+     */
+    private static List<Case> cases() {
+        final Random random = new Random(SEED);
+        final int[] colors = new int[INPUTS];
+
+        for (int i = 0; i < INPUTS; i++) {
+            colors[i] = random.nextInt(1 << 24);
+        }
+
+        final Color[] awtColors = new Color[INPUTS];
+        final String[] rgbInputs = new String[INPUTS];
+        final String[] hexInputs = new String[INPUTS];
+        final String[] decInputs = new String[INPUTS];
+        final String[] hsbInputs = new String[INPUTS];
+        final String[] hslInputs = new String[INPUTS];
+        final String[] cmykInputs = new String[INPUTS];
+        final String[] hexPrefixes = {"0x", "#", "", "0X"};
+
+        for (int i = 0; i < INPUTS; i++) {
+            final int rgb = colors[i];
+            awtColors[i] = new Color(rgb);
+            rgbInputs[i] = ColorCalc.packedToRGB(rgb)[1];
+            hexInputs[i] = hexPrefixes[i & 3] + ColorCalc.packedToHEX(rgb)[2];
+            decInputs[i] = ColorCalc.packedToDEC(rgb)[0];
+            hsbInputs[i] = ColorCalc.packedToHSBHSV(rgb)[1];
+            hslInputs[i] = ColorCalc.packedToHSL(rgb)[1];
+            cmykInputs[i] = ColorCalc.packedToCMYK(rgb)[1];
+        }
+
+        final List<Case> cases = new ArrayList<>();
+
+        cases.add(new Case("rgbTupleToColor", i -> ColorCalc.rgbTupleToColor(rgbInputs[i]).getRGB()));
+        cases.add(new Case("hexTocolor", i -> ColorCalc.hexTocolor(hexInputs[i]).getRGB()));
+        cases.add(new Case("decToColor", i -> ColorCalc.decToColor(decInputs[i]).getRGB()));
+        cases.add(new Case("hsbhsvTupleToColor", i -> ColorCalc.hsbhsvTupleToColor(hsbInputs[i]).getRGB()));
+        cases.add(new Case("hslTupleToColor", i -> ColorCalc.hslTupleToColor(hslInputs[i]).getRGB()));
+        cases.add(new Case("cmykTupleToColor", i -> ColorCalc.cmykTupleToColor(cmykInputs[i]).getRGB()));
+
+        cases.add(new Case("ColorParser.parseRGB", i -> ColorParser.parseRGB(rgbInputs[i])));
+        cases.add(new Case("ColorParser.parseHEX", i -> ColorParser.parseHEX(hexInputs[i])));
+        cases.add(new Case("ColorParser.parseDEC", i -> ColorParser.parseDEC(decInputs[i])));
+        cases.add(new Case("ColorParser.parseHSBHSV", i -> ColorParser.parseHSBHSV(hsbInputs[i])));
+        cases.add(new Case("ColorParser.parseHSL", i -> ColorParser.parseHSL(hslInputs[i])));
+        cases.add(new Case("ColorParser.parseCMYK", i -> ColorParser.parseCMYK(cmykInputs[i])));
+
+        final String[][] mixedInputs = {rgbInputs, hexInputs, decInputs, hslInputs, cmykInputs};
+        cases.add(new Case("ColorParser.parseAny", i -> ColorParser.parseAny(mixedInputs[i % mixedInputs.length][i])));
+
+        final String[] nameInputs = new String[INPUTS];
+        Arrays.setAll(nameInputs, i -> NamedColors.nearestName(colors[i]));
+
+        cases.add(new Case("ColorParser.parseName", i -> ColorParser.parseName(nameInputs[i])));
+        cases.add(new Case("NamedColors.nearestName", i -> NamedColors.nearestName(colors[i]).length()));
+
+        cases.add(new Case("colorToRGB", i -> consume(ColorCalc.colorToRGB(awtColors[i]))));
+        cases.add(new Case("colorToHEX", i -> consume(ColorCalc.colorToHEX(awtColors[i]))));
+        cases.add(new Case("colorToDEC", i -> consume(ColorCalc.colorToDEC(awtColors[i]))));
+        cases.add(new Case("colorToHSBHSV", i -> consume(ColorCalc.colorToHSBHSV(awtColors[i]))));
+        cases.add(new Case("colorToHSL", i -> consume(ColorCalc.colorToHSL(awtColors[i]))));
+        cases.add(new Case("colorToCMYK", i -> consume(ColorCalc.colorToCMYK(awtColors[i]))));
+
+        final StringBuilder builder = new StringBuilder(64);
+
+        for (ColorSpace space : ColorSpace.values()) {
+            cases.add(new Case("ColorFormatter." + space.name(), i -> {
+                builder.setLength(0);
+                return ColorFormatter.append(space, space.defaultStyle(), colors[i], builder).length();
+            }));
+        }
+
+        final int[] palette = new int[50_000];
+
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = random.nextInt(1 << 24);
+        }
+
+        final LabIndex labIndex = new LabIndex(palette);
+        final double[] lab = new double[3];
+
+        cases.add(new Case("PerceptualColor.rgbToLab", i -> (int) PerceptualColor.rgbToLab(colors[i], lab)[0]));
+        cases.add(new Case("PerceptualColor.rgbToOklch", i -> (int) PerceptualColor.rgbToOklch(colors[i], lab)[2]));
+        cases.add(new Case("LabIndex.nearest x50000", i -> labIndex.nearest(colors[i])));
+
+        final ColorCache cache = new ColorCache(INPUTS * ColorSpace.values().length);
+
+        cases.add(new Case("ColorCache.format", i -> consume(cache.format(ColorSpace.HSL, colors[i]))));
+        cases.add(new Case("ColorCache.parse", i -> cache.parse(ColorSpace.HSL, hslInputs[i])));
+
+        final float[][] planes = new float[4][INPUTS];
+        final int[] pixels = new int[INPUTS];
+
+        cases.add(new Case("ColorBulk.toHSBHSV x" + INPUTS, i -> {
+            ColorBulk.toHSBHSV(colors, planes[0], planes[1], planes[2]);
+            return Float.floatToRawIntBits(planes[0][i]);
+        }));
+        cases.add(new Case("ColorBulk.toHSL x" + INPUTS, i -> {
+            ColorBulk.toHSL(colors, planes[0], planes[1], planes[2]);
+            return Float.floatToRawIntBits(planes[0][i]);
+        }));
+        cases.add(new Case("ColorBulk.toCMYK x" + INPUTS, i -> {
+            ColorBulk.toCMYK(colors, planes[0], planes[1], planes[2], planes[3]);
+            return Float.floatToRawIntBits(planes[0][i]);
+        }));
+        cases.add(new Case("ColorBulk.fromHSL x" + INPUTS, i -> {
+            ColorBulk.fromHSL(planes[0], planes[1], planes[2], pixels);
+            return pixels[i];
+        }));
+
+        final int[] translucent = new int[INPUTS];
+
+        for (int i = 0; i < INPUTS; i++) {
+            translucent[i] = random.nextInt();
+        }
+
+        cases.add(new Case("ColorBulk.(un)premultiply x" + INPUTS, i -> {
+            ColorBulk.premultiply(translucent);
+            ColorBulk.unpremultiply(translucent);
+            return translucent[i];
+        }));
+
+        final ColorRamp ramp = ColorRamp.of(ColorRamp.Interpolation.OKLAB, 0x000080, 0x00FFFF, 0xFFFF00, 0xFF0000);
+        final ColorRamp.LookupTable table = ramp.lookupTable(1024);
+
+        final float[] heat = new float[INPUTS];
+
+        for (int i = 0; i < INPUTS; i++) {
+            heat[i] = random.nextFloat();
+        }
+
+        cases.add(new Case("ColorRamp.at OKLAB", i -> ramp.at(heat[i])));
+        cases.add(new Case("ColorRamp.LookupTable.colorize x" + INPUTS, i -> {
+            table.colorize(heat, 0, 1, pixels);
+            return pixels[i];
+        }));
+
+        final ColorSet set = new ColorSet();
+        final ColorSet other = ColorSet.of(palette);
+
+        cases.add(new Case("ColorSet.addAll x" + INPUTS, i -> {
+            set.addAll(colors);
+            return set.contains(colors[i]) ? 1 : 0;
+        }));
+        cases.add(new Case("ColorSet.union + cardinality", i -> set.union(other).cardinality()));
+
+        final ColorHistogram histogram = new ColorHistogram(ColorHistogram.Storage.SPARSE);
+
+        cases.add(new Case("ColorHistogram.addAll SPARSE x" + INPUTS, i -> histogram.addAll(colors).count(colors[i])));
+
+        final BufferedImage image = new BufferedImage(ImageAdjuster.TILE_SIZE, ImageAdjuster.TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        final ImageAdjuster.Adjustment adjustment = new ImageAdjuster.Adjustment(90f, 1.2f, 0.9f, 1f, 0f, 0f, 0.1f, 0f);
+        final ImageAdjuster.Adjustment rotation = new ImageAdjuster.Adjustment(90f, 1f, 1f, 1f, 0f, 0f, 0f, 0f);
+
+        image.setRGB(0, 0, ImageAdjuster.TILE_SIZE, ImageAdjuster.TILE_SIZE, colors, 0, ImageAdjuster.TILE_SIZE);
+
+        cases.add(new Case("ImageAdjuster.Adjustment.apply", i -> adjustment.apply(colors[i])));
+        cases.add(new Case("ImageAdjuster.adjustInPlace x" + INPUTS, i -> {
+            ImageAdjuster.adjustInPlace(image, rotation);
+            return image.getRGB(i % ImageAdjuster.TILE_SIZE, i / ImageAdjuster.TILE_SIZE);
+        }));
+
+        final CmykProfile profile = CmykProfile.configured();
+
+        if (!profile.isFormula()) {
+            final float[] cmyk = new float[4];
+
+            cases.add(new Case("CmykProfile.toCmyk", i -> (int) (profile.toCmyk(colors[i], cmyk)[0] * 100)));
+            cases.add(new Case("CmykProfile.toRgb", i -> profile.toRgb(heat[i], heat[(i + 1) % INPUTS], heat[(i + 2) % INPUTS], heat[(i + 3) % INPUTS])));
+        }
+
+        cases.add(new Case("removeAlpha", i -> ColorCalc.removeAlpha(awtColors[i]).getRGB()));
+
+        return cases;
+    }
+
+    /**
+     * Helper methods for measuring.
+     */
+    private static long loop(Operation operation, long nanos) {
+        final long end = System.nanoTime() + nanos;
+        long ops = 0;
+        int result = 0;
+
+        do {
+            // Check the clock only every 1024 calls to keep its cost out of the numbers.
+            for (int i = 0; i < 1024; i++) {
+                result ^= operation.run((int) (ops + i) & INPUT_MASK);
+            }
+
+            ops += 1024;
+        } while (System.nanoTime() < end);
+
+        sink = result;
+
+        return ops;
+    }
+
+    private static long[] latencies(Operation operation) {
+        final long[] latencies = new long[LATENCY_SAMPLES];
+        int result = 0;
+
+        for (int i = 0; i < LATENCY_SAMPLES; i++) {
+            final long start = System.nanoTime();
+            result ^= operation.run(i & INPUT_MASK);
+            latencies[i] = System.nanoTime() - start;
+        }
+
+        sink = result;
+        Arrays.sort(latencies);
+
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) (quantile * sorted.length))];
+    }
+
+    private static long seconds(double seconds) {
+        return (long) (seconds * 1e9);
+    }
+
+    static int consume(String[] output) {
+        int hash = 0;
+
+        for (String line : output) {
+            hash = 31 * hash + line.length();
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * The ColorBulk loops that have a SIMD version, implemented by VectorKernels in the simd source root.
+ * <br>
+ * <br>
+ * Pixels are read from or written to argb[argbOffset + i] for every index i in [from, to), the planes are indexed
+ * with i directly. Conversions back to pixels or them with opaque. Results must be bit for bit the same as ColorEngine's.
+ */
+interface BulkKernels {
+    void toHSBHSV(int[] argb, int argbOffset, float[] hue, float[] sat, float[] brt, int from, int to);
+
+    void toHSL(int[] argb, int argbOffset, float[] hue, float[] sat, float[] lgt, int from, int to);
+
+    void toCMYK(int[] argb, int argbOffset, float[] c, float[] m, float[] y, float[] k, int from, int to);
+
+    void fromHSBHSV(float[] hue, float[] sat, float[] brt, int[] argb, int argbOffset, int opaque, int from, int to);
+
+    void fromHSL(float[] hue, float[] sat, float[] lgt, int[] argb, int argbOffset, int opaque, int from, int to);
+
+    void fromCMYK(float[] c, float[] m, float[] y, float[] k, int[] argb, int argbOffset, int opaque, int from, int to);
+}
@@ -0,0 +1,429 @@
+import java.awt.color.ICC_Profile;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RGB to CMYK and back through an ICC output profile, e.g. the one a print shop hands out (FOGRA39, SWOP, ...).
+ * The color spaces of ColorCalc use the simple rapidtables formula, which knows nothing about inks and paper.
+ * <br>
+ * <br>
+ * ICC_ColorSpace and ColorConvertOp take microseconds per color, so every profile is converted only once, at
+ * the points of two grids: 33³ RGB colors to CMYK, and 17⁴ CMYK colors to RGB. Everything else is interpolated
+ * tetrahedrally within a grid cell, which stays within about one 8-bit step of the profile and takes tens of
+ * nanoseconds instead. The RGB side is always sRGB. For CMYK to RGB, each of the two K planes around the
+ * black key is interpolated in C, M and Y, and the two results are mixed.
+ * <br>
+ * <br>
+ * No CMYK profile ships with the JDK. Profiles are loaded from a file, or from the path in the system property
+ * colorcalc.cmykProfile. Without one, FORMULA falls back to the rapidtables formula of ColorEngine.
+ * Instances are immutable and can be shared between threads. Only loading a profile touches java.awt, FORMULA
+ * loads none of its classes.
+ */
+public final class CmykProfile {
+    /**
+     * The rapidtables formula, i.e. exactly what the CMYK color space does.
+     */
+    public static final CmykProfile FORMULA = new CmykProfile("formula", null, null);
+
+    private static final int RGB_GRID = 33;
+    private static final int CMYK_GRID = 17;
+    private static final float USHORT_MAX = 65535f;
+
+    /**
+     * Grid cell and position within it of each 8-bit channel value, for the RGB grid.
+     */
+    private static final int[] CELLS = new int[256];
+    private static final float[] FRACTIONS = new float[256];
+
+    private static final Map<Path, CmykProfile> LOADED = new ConcurrentHashMap<>();
+    private static volatile CmykProfile configured;
+
+    static {
+        for (int value = 0; value < 256; value++) {
+            final float position = value * (RGB_GRID - 1) / 255f;
+            CELLS[value] = Math.min((int) position, RGB_GRID - 2);
+            FRACTIONS[value] = position - CELLS[value];
+        }
+    }
+
+    private final String name;
+
+    /**
+     * C, M, Y and K in [0, 1] per RGB grid point, red outermost. Null for FORMULA.
+     */
+    private final float[] toCmyk;
+
+    /**
+     * R, G and B in [0, 255] per CMYK grid point, K outermost and Y innermost. Null for FORMULA.
+     */
+    private final float[] toRgb;
+
+    private CmykProfile(String name, float[] toCmyk, float[] toRgb) {
+        this.name = name;
+        this.toCmyk = toCmyk;
+        this.toRgb = toRgb;
+    }
+
+    /**
+     * Methods that create profiles.
+     * <br>
+     * <br>
+     * Reads and bakes an ICC profile file. Each file is only read once, later calls return the same instance.
+     */
+    public static CmykProfile load(Path file) throws IOException {
+        final Path key = file.toAbsolutePath().normalize();
+        final CmykProfile loaded = LOADED.get(key);
+
+        if (loaded != null) {
+            return loaded;
+        }
+
+        final CmykProfile baked = Icc.load(key, file);
+        final CmykProfile previous = LOADED.putIfAbsent(key, baked);
+
+        return previous != null ? previous : baked;
+    }
+
+    /**
+     * Bakes a profile that has CMYK as its color space, which is every printer profile for CMYK inks.
+     */
+    public static CmykProfile of(String name, ICC_Profile profile) {
+        return Icc.bake(name, profile);
+    }
+
+    /**
+     * The profile from the system property colorcalc.cmykProfile, or FORMULA if it isn't set or can't be read.
+     */
+    public static CmykProfile configured() {
+        CmykProfile current = configured;
+
+        if (current == null) {
+            final String path = System.getProperty("colorcalc.cmykProfile");
+            current = FORMULA;
+
+            if (path != null) {
+                try {
+                    current = load(Path.of(path));
+                } catch (IOException | IllegalArgumentException ex) {
+                    System.err.println("Could not use the CMYK profile, falling back to the formula: " + ex.getMessage());
+                }
+            }
+
+            configured = current;
+        }
+
+        return current;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public boolean isFormula() {
+        return toCmyk == null;
+    }
+
+    @Override
+    public String toString() {
+        return "CmykProfile[" + name + "]";
+    }
+
+    /**
+     * Methods that convert single colors.
+     * <br>
+     * <br>
+     * Writes cyan, magenta, yellow and black key in [0, 1] into out[0..3].
+     */
+    public float[] toCmyk(int rgb, float[] out) {
+        if (toCmyk == null) {
+            return ColorEngine.rgbToCmyk(rgb, out);
+        }
+
+        for (int channel = 0; channel < 4; channel++) {
+            out[channel] = component(rgb, channel);
+        }
+
+        return out;
+    }
+
+    /**
+     * The ColorTable entry of the CMYK components, for ColorFormatter.
+     */
+    int cmykEntry(int rgb) {
+        if (toCmyk == null) {
+            return ColorTable.cmyk(rgb);
+        }
+
+        return ColorTable.quantizeCMYK(component(rgb, 0), component(rgb, 1), component(rgb, 2), component(rgb, 3));
+    }
+
+    /**
+     * The packed color printed with these inks, all components in [0, 1].
+     */
+    public int toRgb(float c, float m, float y, float k) {
+        final int rgb = toPacked(c, m, y, k);
+
+        if (rgb == ColorEngine.OUT_OF_RANGE) {
+            throw new IllegalArgumentException("CMYK values outside of expected range: " + c + ", " + m + ", " + y + ", " + k);
+        }
+
+        return rgb;
+    }
+
+    /**
+     * Non-throwing variant of toRgb, returns ColorEngine.OUT_OF_RANGE instead.
+     */
+    int toPacked(float c, float m, float y, float k) {
+        if (toRgb == null) {
+            return ColorEngine.cmykToPacked(c, m, y, k);
+        } else if (!(inUnit(c) && inUnit(m) && inUnit(y) && inUnit(k))) {
+            return ColorEngine.OUT_OF_RANGE;
+        }
+
+        final float scale = CMYK_GRID - 1;
+        final int kCell = Math.min((int) (k * scale), CMYK_GRID - 2);
+        final int cCell = Math.min((int) (c * scale), CMYK_GRID - 2);
+        final int mCell = Math.min((int) (m * scale), CMYK_GRID - 2);
+        final int yCell = Math.min((int) (y * scale), CMYK_GRID - 2);
+
+        final float fk = k * scale - kCell;
+        final float fc = c * scale - cCell;
+        final float fm = m * scale - mCell;
+        final float fy = y * scale - yCell;
+
+        final int yStride = 3;
+        final int mStride = yStride * CMYK_GRID;
+        final int cStride = mStride * CMYK_GRID;
+        final int kStride = cStride * CMYK_GRID;
+        final int base = kCell * kStride + cCell * cStride + mCell * mStride + yCell * yStride;
+
+        int rgb = 0;
+
+        for (int channel = 0; channel < 3; channel++) {
+            final float lower = tetrahedral(toRgb, base + channel, cStride, mStride, yStride, fc, fm, fy);
+            final float upper = tetrahedral(toRgb, base + kStride + channel, cStride, mStride, yStride, fc, fm, fy);
+            final int value = Math.round(lower + (upper - lower) * fk);
+
+            rgb = rgb << 8 | Math.max(0, Math.min(255, value));
+        }
+
+        return rgb;
+    }
+
+    /**
+     * Methods that convert arrays, in parallel for large ones, like the ColorBulk methods.
+     */
+    public void toCMYK(int[] argb, float[] c, float[] m, float[] y, float[] k) {
+        checkLength(argb.length, c, m, y, k);
+
+        ColorBulk.forRange(argb.length, (from, to) -> {
+            final float[] cmyk = new float[4];
+
+            for (int i = from; i < to; i++) {
+                toCmyk(argb[i], cmyk);
+                c[i] = cmyk[0];
+                m[i] = cmyk[1];
+                y[i] = cmyk[2];
+                k[i] = cmyk[3];
+            }
+        });
+    }
+
+    /**
+     * Writes opaque colors. Throws IllegalArgumentException if a component is outside of [0, 1].
+     */
+    public void fromCMYK(float[] c, float[] m, float[] y, float[] k, int[] argb) {
+        checkLength(argb.length, c, m, y, k);
+
+        ColorBulk.forRange(argb.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                argb[i] = 0xFF000000 | toRgb(c[i], m[i], y[i], k[i]);
+            }
+        });
+    }
+
+    /**
+     * Helper methods for the grids.
+     * <br>
+     * <br>
+     * One CMYK component of the packed color, from the RGB grid.
+     */
+    private float component(int rgb, int channel) {
+        final int r = ColorEngine.red(rgb);
+        final int g = ColorEngine.green(rgb);
+        final int b = ColorEngine.blue(rgb);
+        final int base = 4 * ((CELLS[r] * RGB_GRID + CELLS[g]) * RGB_GRID + CELLS[b]);
+        final float value = tetrahedral(toCmyk, base + channel, 4 * RGB_GRID * RGB_GRID, 4 * RGB_GRID, 4, FRACTIONS[r], FRACTIONS[g], FRACTIONS[b]);
+
+        return Math.max(0f, Math.min(1f, value));
+    }
+
+    /**
+     * Interpolates one channel within the cell at base. The cell is split into six tetrahedra along its diagonal,
+     * the one containing the point is picked by the order of its fractions, and the result is a weighted sum of
+     * its four corners: only four loads, where trilinear interpolation needs eight.
+     */
+    private static float tetrahedral(float[] grid, int base, int strideX, int strideY, int strideZ, float fx, float fy, float fz) {
+        final int first;
+        final int second;
+        final float high;
+        final float middle;
+        final float low;
+
+        if (fx >= fy) {
+            if (fy >= fz) {
+                first = strideX;
+                second = strideX + strideY;
+                high = fx;
+                middle = fy;
+                low = fz;
+            } else if (fx >= fz) {
+                first = strideX;
+                second = strideX + strideZ;
+                high = fx;
+                middle = fz;
+                low = fy;
+            } else {
+                first = strideZ;
+                second = strideZ + strideX;
+                high = fz;
+                middle = fx;
+                low = fy;
+            }
+        } else if (fx >= fz) {
+            first = strideY;
+            second = strideY + strideX;
+            high = fy;
+            middle = fx;
+            low = fz;
+        } else if (fy >= fz) {
+            first = strideY;
+            second = strideY + strideZ;
+            high = fy;
+            middle = fz;
+            low = fx;
+        } else {
+            first = strideZ;
+            second = strideZ + strideY;
+            high = fz;
+            middle = fy;
+            low = fx;
+        }
+
+        return (1 - high) * grid[base]
+                + (high - middle) * grid[base + first]
+                + (middle - low) * grid[base + second]
+                + low * grid[base + strideX + strideY + strideZ];
+    }
+
+    private static boolean inUnit(float value) {
+        return value >= 0 && value <= 1;
+    }
+
+    private static void checkLength(int length, float[]... channels) {
+        for (float[] channel : channels) {
+            if (channel.length < length) {
+                throw new IllegalArgumentException("Channel of length " + channel.length + " is too short for " + length + " pixels");
+            }
+        }
+    }
+
+    /**
+     * Everything that needs java.awt.color and java.awt.image, in its own class so that it's only loaded with the
+     * first profile. Otherwise the verifier pulls in Raster and WritableRaster for FORMULA too.
+     */
+    private static final class Icc {
+        private Icc() {}
+
+        static CmykProfile load(Path key, Path file) throws IOException {
+            final ICC_Profile profile;
+
+            try (InputStream in = Files.newInputStream(key)) {
+                profile = ICC_Profile.getInstance(in);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Not an ICC profile: " + file, ex);
+            }
+
+            return bake(file.getFileName().toString(), profile);
+        }
+
+        static CmykProfile bake(String name, ICC_Profile profile) {
+            if (profile.getColorSpaceType() != java.awt.color.ColorSpace.TYPE_CMYK) {
+                throw new IllegalArgumentException(name + " is not a CMYK profile");
+            }
+
+            final ICC_Profile srgb = ICC_Profile.getInstance(java.awt.color.ColorSpace.CS_sRGB);
+
+            final float[] rgbPoints = new float[3 * RGB_GRID * RGB_GRID * RGB_GRID];
+            int point = 0;
+
+            for (int r = 0; r < RGB_GRID; r++) {
+                for (int g = 0; g < RGB_GRID; g++) {
+                    for (int b = 0; b < RGB_GRID; b++) {
+                        rgbPoints[point++] = (float) r / (RGB_GRID - 1);
+                        rgbPoints[point++] = (float) g / (RGB_GRID - 1);
+                        rgbPoints[point++] = (float) b / (RGB_GRID - 1);
+                    }
+                }
+            }
+
+            final float[] cmykPoints = new float[4 * CMYK_GRID * CMYK_GRID * CMYK_GRID * CMYK_GRID];
+            point = 0;
+
+            for (int k = 0; k < CMYK_GRID; k++) {
+                for (int c = 0; c < CMYK_GRID; c++) {
+                    for (int m = 0; m < CMYK_GRID; m++) {
+                        for (int y = 0; y < CMYK_GRID; y++) {
+                            cmykPoints[point++] = (float) c / (CMYK_GRID - 1);
+                            cmykPoints[point++] = (float) m / (CMYK_GRID - 1);
+                            cmykPoints[point++] = (float) y / (CMYK_GRID - 1);
+                            cmykPoints[point++] = (float) k / (CMYK_GRID - 1);
+                        }
+                    }
+                }
+            }
+
+            final float[] toRgb = convert(profile, srgb, cmykPoints, 4, 3);
+
+            for (int i = 0; i < toRgb.length; i++) {
+                toRgb[i] *= 255f;
+            }
+
+            return new CmykProfile(name, convert(srgb, profile, rgbPoints, 3, 4), toRgb);
+        }
+
+        /**
+         * Converts all points (components in [0, 1], interleaved) at once, with 16 bits per component.
+         */
+        private static float[] convert(ICC_Profile from, ICC_Profile to, float[] points, int fromChannels, int toChannels) {
+            final int count = points.length / fromChannels;
+            final WritableRaster source = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, count, 1, fromChannels, null);
+            final WritableRaster target = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, count, 1, toChannels, null);
+            final int[] samples = new int[points.length];
+
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = Math.round(points[i] * USHORT_MAX);
+            }
+
+            source.setPixels(0, 0, count, 1, samples);
+            new ColorConvertOp(new ICC_Profile[] {from, to}, null).filter(source, target);
+
+            final int[] converted = target.getPixels(0, 0, count, 1, new int[count * toChannels]);
+            final float[] values = new float[converted.length];
+
+            for (int i = 0; i < values.length; i++) {
+                values[i] = converted[i] / USHORT_MAX;
+            }
+
+            return values;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulk conversions between ARGB pixel buffers and planar float outputs (one array per component).
+ * Large buffers are split up and converted on the common fork-join pool.
+ * <br>
+ * <br>
+ * Alpha is ignored on the way in, conversions back to ARGB always write opaque pixels.
+ * Units are the same as in ColorEngine. Only premultiply and unpremultiply work on the alpha channel.
+ * <br>
+ * <br>
+ * With the system property colorcalc.simd set to true and the jdk.incubator.vector module added
+ * (--add-modules jdk.incubator.vector), the loops run on VectorKernels instead. Results are the same either way.
+ * VectorKernels is in the separate source root simd, which needs that option to compile as well:
+ * javac -d out src/*.java builds everything else, javac --add-modules jdk.incubator.vector -cp out -d out simd/*.java
+ * adds the kernels. The IntelliJ module passes the option for both roots.
+ */
+public final class ColorBulk {
+    /**
+     * Below this many pixels a chunk is converted on the calling thread.
+     */
+    static final int SPLIT_THRESHOLD = 1 << 14;
+
+    /**
+     * Pixels of buffers without a backing array are copied in chunks of this size for the vector kernels.
+     */
+    private static final int CHUNK = 1 << 10;
+
+    private static final int OPAQUE = 0xFF000000;
+
+    /**
+     * UNPREMULTIPLY[a] is 2^32 / (2 * a) rounded up, so that (510 * p + a) * UNPREMULTIPLY[a] >>> 32 equals
+     * Math.round(p * 255.0 / a) for all 8-bit values without dividing.
+     */
+    private static final long[] UNPREMULTIPLY = new long[256];
+
+    static {
+        for (int a = 1; a < UNPREMULTIPLY.length; a++) {
+            UNPREMULTIPLY[a] = ((1L << 32) + 2 * a - 1) / (2 * a);
+        }
+    }
+
+    /**
+     * The SIMD loops, or null if they are turned off or not available.
+     */
+    private static final BulkKernels KERNELS = loadKernels();
+    private static final boolean VECTORIZED = KERNELS != null;
+
+    /**
+     * Utility Class for bulk calculations.
+     */
+    private ColorBulk() {}
+
+    /**
+     * Whether the conversions run on the Vector API.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Methods that convert ARGB pixels into planar components.
+     */
+    public static void toHSBHSV(int[] argb, float[] hue, float[] sat, float[] brt) {
+        toHSBHSV(IntBuffer.wrap(argb), hue, sat, brt);
+    }
+
+    public static void toHSBHSV(ByteBuffer argb, float[] hue, float[] sat, float[] brt) {
+        toHSBHSV(argb.asIntBuffer(), hue, sat, brt);
+    }
+
+    /**
+     * Reads the pixels between position and limit, without moving the position.
+     */
+    public static void toHSBHSV(IntBuffer argb, float[] hue, float[] sat, float[] brt) {
+        final int offset = argb.position();
+        final int length = checkLength(argb.remaining(), hue, sat, brt);
+
+        if (VECTORIZED) {
+            forPixels(argb, offset, length, false, (pixels, pixelOffset, from, to) ->
+                    KERNELS.toHSBHSV(pixels, pixelOffset, hue, sat, brt, from, to));
+            return;
+        }
+
+        forRange(length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                final int rgb = argb.get(offset + i);
+                hue[i] = ColorEngine.hsbHue(rgb);
+                sat[i] = ColorEngine.hsbSaturation(rgb);
+                brt[i] = ColorEngine.hsbBrightness(rgb);
+            }
+        });
+    }
+
+    public static void toHSL(int[] argb, float[] hue, float[] sat, float[] lgt) {
+        toHSL(IntBuffer.wrap(argb), hue, sat, lgt);
+    }
+
+    public static void toHSL(ByteBuffer argb, float[] hue, float[] sat, float[] lgt) {
+        toHSL(argb.asIntBuffer(), hue, sat, lgt);
+    }
+
+    public static void toHSL(IntBuffer argb, float[] hue, float[] sat, float[] lgt) {
+        final int offset = argb.position();
+        final int length = checkLength(argb.remaining(), hue, sat, lgt);
+
+        if (VECTORIZED) {
+            forPixels(argb, offset, length, false, (pixels, pixelOffset, from, to) ->
+                    KERNELS.toHSL(pixels, pixelOffset, hue, sat, lgt, from, to));
+            return;
+        }
+
+        forRange(length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                final int rgb = argb.get(offset + i);
+                final float lightness = ColorEngine.hslLightness(rgb);
+                hue[i] = ColorEngine.hsbHue(rgb) * 360f;
+                sat[i] = ColorEngine.sInHSBtoHSL(ColorEngine.hsbBrightness(rgb), lightness);
+                lgt[i] = lightness;
+            }
+        });
+    }
+
+    public static void toCMYK(int[] argb, float[] c, float[] m, float[] y, float[] k) {
+        toCMYK(IntBuffer.wrap(argb), c, m, y, k);
+    }
+
+    public static void toCMYK(ByteBuffer argb, float[] c, float[] m, float[] y, float[] k) {
+        toCMYK(argb.asIntBuffer(), c, m, y, k);
+    }
+
+    public static void toCMYK(IntBuffer argb, float[] c, float[] m, float[] y, float[] k) {
+        final int offset = argb.position();
+        final int length = checkLength(argb.remaining(), c, m, y, k);
+
+        if (VECTORIZED) {
+            forPixels(argb, offset, length, false, (pixels, pixelOffset, from, to) ->
+                    KERNELS.toCMYK(pixels, pixelOffset, c, m, y, k, from, to));
+            return;
+        }
+
+        forRange(length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                final int rgb = argb.get(offset + i);
+                final float blackKey = ColorEngine.cmykBlackKey(rgb);
+                c[i] = ColorEngine.cmykComponent(ColorEngine.red(rgb), blackKey);
+                m[i] = ColorEngine.cmykComponent(ColorEngine.green(rgb), blackKey);
+                y[i] = ColorEngine.cmykComponent(ColorEngine.blue(rgb), blackKey);
+                k[i] = blackKey;
+            }
+        });
+    }
+
+    /**
+     * Methods that convert planar components back into opaque ARGB pixels.
+     */
+    public static void fromHSBHSV(float[] hue, float[] sat, float[] brt, int[] argb) {
+        fromHSBHSV(hue, sat, brt, IntBuffer.wrap(argb));
+    }
+
+    public static void fromHSBHSV(float[] hue, float[] sat, float[] brt, ByteBuffer argb) {
+        fromHSBHSV(hue, sat, brt, argb.asIntBuffer());
+    }
+
+    /**
+     * Writes the pixels starting at the position, without moving the position.
+     */
+    public static void fromHSBHSV(float[] hue, float[] sat, float[] brt, IntBuffer argb) {
+        final int offset = argb.position();
+        final int length = checkLength(argb.remaining(), hue, sat, brt);
+
+        if (VECTORIZED) {
+            forPixels(argb, offset, length, true, (pixels, pixelOffset, from, to) ->
+                    KERNELS.fromHSBHSV(hue, sat, brt, pixels, pixelOffset, OPAQUE, from, to));
+            return;
+        }
+
+        forRange(length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                argb.put(offset + i, OPAQUE | ColorEngine.hsbToRgb(hue[i], sat[i], brt[i]));
+            }
+        });
+    }
+
+    public static void fromHSL(float[] hue, float[] sat, float[] lgt, int[] argb) {
+        fromHSL(hue, sat, lgt, IntBuffer.wrap(argb));
+    }
+
+    public static void fromHSL(float[] hue, float[] sat, float[] lgt, ByteBuffer argb) {
+        fromHSL(hue, sat, lgt, argb.asIntBuffer());
+    }
+
+    public static void fromHSL(float[] hue, float[] sat, float[] lgt, IntBuffer argb) {
+        final int offset = argb.position();
+        final int length = checkLength(argb.remaining(), hue, sat, lgt);
+
+        if (VECTORIZED) {
+            forPixels(argb, offset, length, true, (pixels, pixelOffset, from, to) ->
+                    KERNELS.fromHSL(hue, sat, lgt, pixels, pixelOffset, OPAQUE, from, to));
+            return;
+        }
+
+        forRange(length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                argb.put(offset + i, OPAQUE | ColorEngine.hslToRgb(hue[i], sat[i], lgt[i]));
+            }
+        });
+    }
+
+    public static void fromCMYK(float[] c, float[] m, float[] y, float[] k, int[] argb) {
+        fromCMYK(c, m, y, k, IntBuffer.wrap(argb));
+    }
+
+    public static void fromCMYK(float[] c, float[] m, float[] y, float[] k, ByteBuffer argb) {
+        fromCMYK(c, m, y, k, argb.asIntBuffer());
+    }
+
+    public static void fromCMYK(float[] c, float[] m, float[] y, float[] k, IntBuffer argb) {
+        final int offset = argb.position();
+        final int length = checkLength(argb.remaining(), c, m, y, k);
+
+        if (VECTORIZED) {
+            forPixels(argb, offset, length, true, (pixels, pixelOffset, from, to) ->
+                    KERNELS.fromCMYK(c, m, y, k, pixels, pixelOffset, OPAQUE, from, to));
+            return;
+        }
+
+        forRange(length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                argb.put(offset + i, OPAQUE | ColorEngine.cmykToRgb(c[i], m[i], y[i], k[i]));
+            }
+        });
+    }
+
+    /**
+     * Methods that convert ARGB pixels between straight and premultiplied alpha, in place.
+     * <br>
+     * <br>
+     * Multiplies every channel by alpha / 255, rounded to the nearest value.
+     */
+    public static void premultiply(int[] argb) {
+        forRange(argb.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                final int pixel = argb[i];
+                final int alpha = pixel >>> 24;
+
+                argb[i] = pixel & 0xFF000000
+                        | multiply(ColorEngine.red(pixel), alpha) << 16
+                        | multiply(ColorEngine.green(pixel), alpha) << 8
+                        | multiply(ColorEngine.blue(pixel), alpha);
+            }
+        });
+    }
+
+    /**
+     * Divides every channel by alpha / 255 with the reciprocal table, rounded to the nearest value and capped at 255.
+     * Fully transparent pixels become transparent black.
+     */
+    public static void unpremultiply(int[] argb) {
+        forRange(argb.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                final int pixel = argb[i];
+                final int alpha = pixel >>> 24;
+
+                if (alpha == 0xFF) {
+                    continue;
+                }
+
+                final long reciprocal = UNPREMULTIPLY[alpha];
+
+                argb[i] = pixel & 0xFF000000
+                        | divide(ColorEngine.red(pixel), alpha, reciprocal) << 16
+                        | divide(ColorEngine.green(pixel), alpha, reciprocal) << 8
+                        | divide(ColorEngine.blue(pixel), alpha, reciprocal);
+            }
+        });
+    }
+
+    /**
+     * Methods that parse text in bulk.
+     * <br>
+     * <br>
+     * Parses every input in the color space, or detects it per input if from is null (see ColorParser.detect).
+     * Writes the packed colors, or ColorParser error codes for inputs that can't be read, to out and returns
+     * the number of errors.
+     */
+    public static int parse(List<? extends CharSequence> inputs, ColorSpace from, int[] out) {
+        if (out.length < inputs.size()) {
+            throw new IllegalArgumentException("Output of length " + out.length + " is too short for " + inputs.size() + " inputs");
+        }
+
+        final LongAdder errors = new LongAdder();
+
+        forRange(inputs.size(), (start, end) -> {
+            int rangeErrors = 0;
+
+            for (int i = start; i < end; i++) {
+                final CharSequence input = inputs.get(i);
+                out[i] = from == null ? ColorParser.parseAny(input) : from.tryParse(input);
+
+                if (ColorParser.isError(out[i])) {
+                    rangeErrors++;
+                }
+            }
+
+            errors.add(rangeErrors);
+        });
+
+        return errors.intValue();
+    }
+
+    /**
+     * Round(channel * alpha / 255) without dividing.
+     */
+    private static int multiply(int channel, int alpha) {
+        final int product = channel * alpha + 128;
+
+        return (product + (product >> 8)) >> 8;
+    }
+
+    private static int divide(int channel, int alpha, long reciprocal) {
+        return (int) Math.min(0xFF, ((510L * channel + alpha) * reciprocal) >>> 32);
+    }
+
+    /**
+     * Makes sure every plane can hold all the pixels.
+     */
+    private static int checkLength(int pixels, float[]... planes) {
+        for (float[] plane : planes) {
+            if (plane.length < pixels) {
+                throw new IllegalArgumentException("Output of length " + plane.length + " is too short for " + pixels + " pixels");
+            }
+        }
+
+        return pixels;
+    }
+
+    /**
+     * Loads VectorKernels by name, so this class neither needs it nor the jdk.incubator.vector module to compile.
+     */
+    private static BulkKernels loadKernels() {
+        if (!Boolean.getBoolean("colorcalc.simd") || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+
+        try {
+            return Class.forName("VectorKernels").asSubclass(BulkKernels.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            System.err.println("Vector kernels not available, using scalar loops: " + ex);
+            return null;
+        }
+    }
+
+    /**
+     * Runs the kernel over [0, length), in parallel if the range is large enough to be worth it.
+     */
+    static void forRange(int length, RangeKernel kernel) {
+        forRange(length, SPLIT_THRESHOLD, kernel);
+    }
+
+    /**
+     * Same with a custom threshold, for ranges over larger units than pixels (e.g. image tiles).
+     */
+    static void forRange(int length, int threshold, RangeKernel kernel) {
+        if (length <= threshold) {
+            kernel.apply(0, length);
+        } else {
+            ForkJoinPool.commonPool().invoke(new RangeTask(kernel, threshold, 0, length));
+        }
+    }
+
+    /**
+     * Runs the kernel over all pixels, directly on the backing array if there is one.
+     * Otherwise every chunk is copied out of the buffer first (and back into it afterwards if the kernel writes pixels).
+     */
+    private static void forPixels(IntBuffer argb, int offset, int length, boolean writes, PixelKernel kernel) {
+        if (argb.hasArray() && (!writes || !argb.isReadOnly())) {
+            final int[] array = argb.array();
+            final int arrayOffset = argb.arrayOffset() + offset;
+
+            forRange(length, (from, to) -> kernel.apply(array, arrayOffset, from, to));
+            return;
+        }
+
+        forRange(length, (from, to) -> {
+            final int[] chunk = new int[Math.min(CHUNK, to - from)];
+
+            for (int start = from; start < to; start += chunk.length) {
+                final int size = Math.min(chunk.length, to - start);
+
+                if (!writes) {
+                    argb.get(offset + start, chunk, 0, size);
+                }
+
+                kernel.apply(chunk, -start, start, start + size);
+
+                if (writes) {
+                    argb.put(offset + start, chunk, 0, size);
+                }
+            }
+        });
+    }
+
+    /**
+     * A loop body over the pixel indices [from, to).
+     */
+    @FunctionalInterface
+    interface RangeKernel {
+        void apply(int from, int to);
+    }
+
+    /**
+     * A loop body over the pixel indices [from, to), where pixel i lives at pixels[pixelOffset + i].
+     */
+    @FunctionalInterface
+    private interface PixelKernel {
+        void apply(int[] pixels, int pixelOffset, int from, int to);
+    }
+
+    /**
+     * Halves the range until it is below the threshold.
+     */
+    private static final class RangeTask extends RecursiveAction {
+        private final RangeKernel kernel;
+        private final int threshold;
+        private final int from;
+        private final int to;
+
+        private RangeTask(RangeKernel kernel, int threshold, int from, int to) {
+            this.kernel = kernel;
+            this.threshold = threshold;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                kernel.apply(from, to);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(kernel, threshold, from, middle), new RangeTask(kernel, threshold, middle, to));
+            }
+        }
+    }
+}
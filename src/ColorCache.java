@@ -0,0 +1,230 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU caches for the two expensive ends of a conversion: formatted outputs keyed by packed color,
+ * and parsed colors keyed by the raw input. Real traffic repeats the same few thousand colors over and over,
+ * so most lookups skip the parser and the formatters entirely.
+ * <br>
+ * <br>
+ * All methods are thread safe. Each cache is split into stripes by key hash, every stripe is an LRU of its own
+ * behind its own lock, so concurrent requests rarely wait for each other. Eviction is least recently used per stripe,
+ * which is close to it overall. Cached arrays are shared between callers and must not be modified.
+ * <br>
+ * <br>
+ * Inputs longer than MAX_INPUT_LENGTH are parsed without caching. No color notation is that long, and a cache
+ * keyed by arbitrary request bodies would hold on to any amount of memory.
+ */
+public final class ColorCache {
+    /**
+     * Capacity of the shared instance, unless the system property colorcalc.cache.size says otherwise.
+     * Enough for all notations of a few thousand colors.
+     */
+    private static final int DEFAULT_CAPACITY = 1 << 15;
+
+    public static final int MAX_INPUT_LENGTH = 64;
+
+    /**
+     * Stripes per cache, fewer for small capacities so that each stripe still holds at least MIN_STRIPE_CAPACITY entries.
+     */
+    private static final int MAX_STRIPES = 64;
+    private static final int MIN_STRIPE_CAPACITY = 64;
+
+    private static final ColorCache SHARED = new ColorCache(Integer.getInteger("colorcalc.cache.size", DEFAULT_CAPACITY));
+
+    private final Striped<Integer, String[]> formatted;
+    private final Striped<Input, Integer> parsed;
+
+    /**
+     * Both caches hold up to the given number of entries, one per color and color space or per input.
+     * A capacity of 0 turns caching off.
+     */
+    public ColorCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+
+        this.formatted = new Striped<>(capacity);
+        this.parsed = new Striped<>(capacity);
+    }
+
+    /**
+     * The instance used by the user interface and the HTTP service.
+     */
+    public static ColorCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * All notations of the color in the color space, same as {@link ColorSpace#format(int)}. Alpha bits are ignored.
+     */
+    public String[] format(ColorSpace space, int rgb) {
+        // The color takes the lower 24 bits, so the color space fits into the upper ones.
+        final Integer key = space.ordinal() << 24 | (rgb & 0xFFFFFF);
+        final Lru<Integer, String[]> stripe = formatted.stripe(key);
+
+        synchronized (stripe) {
+            final String[] cached = stripe.lookup(key);
+
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // Formatting happens outside of the lock. Two threads may race here, both produce the same strings.
+        final String[] output = space.format(rgb & 0xFFFFFF);
+
+        synchronized (stripe) {
+            stripe.put(key, output);
+        }
+
+        return output;
+    }
+
+    /**
+     * The packed color or one of the ColorParser error codes, same as {@link ColorSpace#tryParse(CharSequence)}.
+     * Inputs longer than MAX_INPUT_LENGTH are neither cached nor counted in the stats.
+     */
+    public int parse(ColorSpace space, String input) {
+        if (input.length() > MAX_INPUT_LENGTH) {
+            return space.tryParse(input);
+        }
+
+        final Input key = new Input(space, input);
+        final Lru<Input, Integer> stripe = parsed.stripe(key);
+
+        synchronized (stripe) {
+            final Integer cached = stripe.lookup(key);
+
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        final int result = space.tryParse(input);
+
+        synchronized (stripe) {
+            stripe.put(key, result);
+        }
+
+        return result;
+    }
+
+    public Stats formatStats() {
+        return formatted.stats();
+    }
+
+    public Stats parseStats() {
+        return parsed.stats();
+    }
+
+    public void clear() {
+        formatted.clear();
+        parsed.clear();
+    }
+
+    /**
+     * Counters since the cache was created.
+     */
+    public record Stats(long hits, long misses, long evictions, int size, int capacity) {
+        public double hitRate() {
+            final long lookups = hits + misses;
+
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private record Input(ColorSpace space, String text) {}
+
+    /**
+     * A fixed number of LRUs, each key always goes to the same one. Callers lock on the stripe they got.
+     */
+    private static final class Striped<K, V> {
+        private final Lru<K, V>[] stripes;
+        private final int capacity;
+
+        @SuppressWarnings("unchecked")
+        Striped(int capacity) {
+            final int count = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, capacity / MIN_STRIPE_CAPACITY)));
+
+            this.stripes = (Lru<K, V>[]) new Lru<?, ?>[count];
+            this.capacity = capacity;
+
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new Lru<>(capacity / count);
+            }
+        }
+
+        Lru<K, V> stripe(K key) {
+            // Fibonacci hashing, the upper bits are the well mixed ones.
+            return stripes[((key.hashCode() * 0x9E3779B9) >>> 16) & (stripes.length - 1)];
+        }
+
+        /**
+         * Sums of all stripes. Every stripe is read under its lock, but not all at the same moment.
+         */
+        Stats stats() {
+            long hits = 0;
+            long misses = 0;
+            long evictions = 0;
+            int size = 0;
+
+            for (Lru<K, V> stripe : stripes) {
+                synchronized (stripe) {
+                    hits += stripe.hits;
+                    misses += stripe.misses;
+                    evictions += stripe.evictions;
+                    size += stripe.size();
+                }
+            }
+
+            return new Stats(hits, misses, evictions, size, capacity);
+        }
+
+        void clear() {
+            for (Lru<K, V> stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * LinkedHashMap in access order drops its least recently used entry once the capacity is exceeded.
+     * Not thread safe on its own, ColorCache locks on it. One stripe of a Striped cache.
+     */
+    private static final class Lru<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        Lru(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        V lookup(K key) {
+            final V value = get(key);
+
+            if (value == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+
+            return value;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evictions++;
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
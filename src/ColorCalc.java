@@ -1,5 +1,4 @@
 import java.awt.*;
-import java.util.Locale;
 
 public final class ColorCalc {
     /**
@@ -7,112 +6,131 @@ public final class ColorCalc {
      */
     private ColorCalc() {}
 
-    private static String percentToDecimal(int percentValue) {
-        final double decimal = ((double) percentValue / 100f);
-
-        return normalizeDecimal(decimal);
-    }
-
-    /**
-     * Always returns a string representation of a decimal with 4 characters (e.g. 1.00 or 0.92).
-     */
-    private static String normalizeDecimal(double decimal) {
-        return String.format(Locale.US, "%.2f", decimal);
-    }
-
     /**
      * Methods that convert all inputs to a color.
      */
     public static Color rgbTupleToColor(String tupleString) {
-        final String[] tuple = tupleString.replaceAll("[() ]", "").split(",");
+        return new Color(rgbTupleToPacked(tupleString));
+    }
 
-        final int r = Integer.parseInt(tuple[0]);
-        final int g = Integer.parseInt(tuple[1]);
-        final int b = Integer.parseInt(tuple[2]);
+    public static Color hexTocolor(String hexVal) {
+        return new Color(hexToPacked(hexVal));
+    }
 
-        return new Color(r, g, b);
+    public static Color decToColor(String decString) {
+        return new Color(decToPacked(decString));
     }
 
-    public static Color hexTocolor(String hexVal) {
-        hexVal = hexVal.replaceAll("#|0X|0x| ", "");
-        final int rgb = Integer.parseUnsignedInt(hexVal, 16);
+    public static Color hsbhsvTupleToColor(String tupleString) {
+        return new Color(hsbhsvTupleToPacked(tupleString));
+    }
 
-        return new Color(rgb);
+    public static Color hslTupleToColor(String tupleString) {
+        return new Color(hslTupleToPacked(tupleString));
     }
 
-    public static Color decToColor(String decString) {
-        decString = decString.replaceAll("[^0-9]", "");
-        final int rgb = Integer.parseInt(decString);
+    public static Color cmykTupleToColor(String tupleString) {
+        return new Color(cmykTupleToPacked(tupleString));
+    }
 
-        return new Color(rgb);
+    /**
+     * CMYK printed as described by the profile, see CmykProfile.
+     */
+    public static Color cmykTupleToColor(String tupleString, CmykProfile profile) {
+        return new Color(checked(ColorParser.parseCMYK(tupleString, profile), tupleString, "CMYK"));
     }
 
-    public static Color hsbhsvTupleToColor(String tupleString) {
-        final String[] tuple = tupleString.replaceAll("[()%° ]", "").split(",");
+    /**
+     * Any of the inputs above, the color space is detected by ColorParser.detect.
+     */
+    public static Color anyToColor(String input) {
+        return new Color(anyToPacked(input));
+    }
 
-        final float hue = cyclicPeriodicity(Integer.parseInt(tuple[0])) / 360f;
-        final float sat = Float.parseFloat(tuple[1]) / 100f;
-        final float brt = Float.parseFloat(tuple[2]) / 100f;
+    /**
+     * Same as above, but the result is a packed 0xRRGGBB int so callers don't need java.awt at all.
+     * The actual parsing happens in ColorParser, these only turn its error codes into exceptions.
+     * They go through ColorSpace so the parses show up in ConversionMetrics.
+     */
+    public static int rgbTupleToPacked(String tupleString) {
+        return checked(ColorSpace.RGB.tryParse(tupleString), tupleString, "RGB");
+    }
+
+    public static int hexToPacked(String hexVal) {
+        return checked(ColorSpace.HEX.tryParse(hexVal), hexVal, "HEX");
+    }
 
-        return new Color(Color.HSBtoRGB(hue, sat, brt));
+    public static int decToPacked(String decString) {
+        return checked(ColorSpace.DEC.tryParse(decString), decString, "DEC");
+    }
+
+    public static int hsbhsvTupleToPacked(String tupleString) {
+        return checked(ColorSpace.HSB_HSV.tryParse(tupleString), tupleString, "HSB/HSV");
     }
 
     /**
      * Source: <a href="https://en.wikipedia.org/wiki/HSL_and_HSV#HSL_to_RGB">Wikipedia: HSL and HSV</a>.
      */
-    public static Color hslTupleToColor(String tupleString) {
-        final String[] tuple = tupleString.replaceAll("[()%° ]", "").split(",");
-
-        final int hue = cyclicPeriodicity(Integer.parseInt(tuple[0]));
-        final float huePrime = hue / 60f;
-        final float sat = Float.parseFloat(tuple[1]) / 100f;
-        final float lgt = Float.parseFloat(tuple[2]) / 100f;
-
-        final float chroma = (1f - Math.abs(2f * lgt - 1f)) * sat;
-        final float componentX = chroma * (1f - Math.abs((huePrime % 2) - 1f));
-        final float[] rgbValues = switch ((int) Math.floor(huePrime)) {
-            case 0 -> new float[]{chroma, componentX, 0};
-            case 1 -> new float[]{componentX, chroma, 0};
-            case 2 -> new float[]{0, chroma, componentX};
-            case 3 -> new float[]{0, componentX, chroma};
-            case 4 -> new float[]{componentX, 0, chroma};
-            default -> new float[]{chroma, 0, componentX};
-        };
-
-        final float corrector = lgt - (chroma / 2f);
+    public static int hslTupleToPacked(String tupleString) {
+        return checked(ColorSpace.HSL.tryParse(tupleString), tupleString, "HSL");
+    }
 
-        final int r = Math.round((rgbValues[0] + corrector) * 255);
-        final int g = Math.round((rgbValues[1] + corrector) * 255);
-        final int b = Math.round((rgbValues[2] + corrector) * 255);
+    /**
+     * Source: <a href="https://www.rapidtables.com/convert/color/cmyk-to-rgb.html">rapidtables</a>.
+     */
+    public static int cmykTupleToPacked(String tupleString) {
+        return checked(ColorSpace.CMYK.tryParse(tupleString), tupleString, "CMYK");
+    }
 
-        return new Color(r, g, b);
+    public static int anyToPacked(String input) {
+        return checked(ColorParser.parseAny(input), input, "Color");
     }
 
     /**
-     * Utility method to take into account that the color circle repeats with a period of 360 degrees.
-     * Normalizes angles to range [0, 360) (0 inclusive to 360 exclusive).
+     * Perceptual color spaces, see PerceptualColor for the units. Throw if the color is outside of the sRGB gamut.
      */
-    private static int cyclicPeriodicity(int hue) {
-        hue %= 360;
+    public static Color labToColor(double l, double a, double b) {
+        return new Color(PerceptualColor.labToRgb(l, a, b));
+    }
 
-        return hue >= 0 ? hue : hue + 360;
+    public static Color oklabToColor(double l, double a, double b) {
+        return new Color(PerceptualColor.oklabToRgb(l, a, b));
+    }
+
+    public static Color oklchToColor(double l, double c, double h) {
+        return new Color(PerceptualColor.oklchToRgb(l, c, h));
     }
 
     /**
-     * Source: <a href="https://www.rapidtables.com/convert/color/cmyk-to-rgb.html">rapidtables</a>.
+     * Inputs with alpha, see ColorParser.parseRGBA and friends. The Color keeps the alpha.
      */
-    public static Color cmykTupleToColor(String tupleString) {
-        final String[] tuple = tupleString.replaceAll("[()% ]", "").split(",");
-        final float c = Float.parseFloat(tuple[0]);
-        final float m = Float.parseFloat(tuple[1]);
-        final float y = Float.parseFloat(tuple[2]);
-        final float k = Float.parseFloat(tuple[3]);
+    public static Color rgbaTupleToColor(String tupleString) {
+        return new Color(checked(ColorParser.parseRGBA(tupleString), tupleString, "RGBA"), true);
+    }
+
+    public static Color hslaTupleToColor(String tupleString) {
+        return new Color(checked(ColorParser.parseHSLA(tupleString), tupleString, "HSLA"), true);
+    }
+
+    public static Color hexaToColor(String hexVal) {
+        return new Color(checked(ColorParser.parseHEXA(hexVal), hexVal, "HEXA"), true);
+    }
 
-        final int r = Math.round(255f * (1f - c) * (1f - k));
-        final int g = Math.round(255f * (1f - m) * (1f - k));
-        final int b = Math.round(255f * (1f - y) * (1f - k));
+    private static int checked(long result, String input, String colorSpace) {
+        if (ColorParser.isError(result)) {
+            return checked((int) result, input, colorSpace);
+        }
 
-        return new Color(r, g, b);
+        return (int) result;
+    }
+
+    private static int checked(int result, String input, String colorSpace) {
+        if (ColorParser.isError(result)) {
+            final String reason = result == ColorParser.ERROR_RANGE ? "out of range" : "malformed";
+            throw new IllegalArgumentException(colorSpace + " input is " + reason + ": " + input);
+        }
+
+        return result;
     }
 
     /**
@@ -126,113 +144,161 @@ public final class ColorCalc {
 
 
     public static String[] colorToRGB(Color color) {
-        return new String[]{
-                "[red = " + color.getRed() + ", green = " + color.getGreen() + ", blue = " + color.getBlue() + "]",
-                "(" + color.getRed() + ", " + color.getGreen() + ", " + color.getBlue() + ")"
-        };
+        return packedToRGB(color.getRGB());
     }
 
     public static String[] colorToHEX(Color color) {
-        String red = Integer.toHexString(color.getRed()).toUpperCase();
-        if (red.length() < 2) {
-            red = "0" + red;
-        }
+        return packedToHEX(color.getRGB());
+    }
 
-        String green = Integer.toHexString(color.getGreen()).toUpperCase();
-        if (green.length() < 2) {
-            green = "0" + green;
-        }
+    public static String[] colorToDEC(Color color) {
+        return packedToDEC(color.getRGB());
+    }
 
-        String blue = Integer.toHexString(color.getBlue()).toUpperCase();
-        if (blue.length() < 2) {
-            blue = "0" + blue;
-        }
+    public static String[] colorToHSBHSV(Color color) {
+        return packedToHSBHSV(color.getRGB());
+    }
 
-        final String hex = red + green + blue;
+    public static String[] colorToHSL(Color color) {
+        return packedToHSL(color.getRGB());
+    }
 
-        return new String[]{
-                "0x" + hex,
-                "#" + hex,
-                hex
-        };
+    public static String[] colorToCMYK(Color color) {
+        return packedToCMYK(color.getRGB());
     }
 
-    public static String[] colorToDEC(Color color) {
-        final int dec = color.getRGB() & 0x00FFFFFF;
+    /**
+     * The inks the profile prints the color with, see CmykProfile.
+     */
+    public static String[] colorToCMYK(Color color, CmykProfile profile) {
+        return ColorFormatter.formatAllCMYK(profile, color.getRGB());
+    }
 
-        return new String[]{Integer.toString(dec)};
+    /**
+     * Notations that keep the alpha of the color.
+     */
+    public static String[] colorToRGBA(Color color) {
+        return new String[]{ColorFormatter.appendRGBA(color.getRGB(), new StringBuilder()).toString()};
     }
 
-    public static String[] colorToHSBHSV(Color color) {
-        final float[] normalizedVals = Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), null);
-        final int[] hsbVals = new int[3];
-        hsbVals[0] = Math.round(normalizedVals[0] * 360f);
-        hsbVals[1] = Math.round(normalizedVals[1] * 100f);
-        hsbVals[2] = Math.round(normalizedVals[2] * 100f);
+    public static String[] colorToHSLA(Color color) {
+        return new String[]{ColorFormatter.appendHSLA(color.getRGB(), new StringBuilder()).toString()};
+    }
 
+    public static String[] colorToHEXA(Color color) {
         return new String[]{
-                "[hue = " + hsbVals[0] + "°, saturation = " + hsbVals[1] + "%, brightness = " + hsbVals[2] + "%]",
-                "(" + hsbVals[0] + ", " + hsbVals[1] + ", " + hsbVals[2] + ")",
-                "(" + hsbVals[0] + ", " + percentToDecimal(hsbVals[1]) + ", " + percentToDecimal(hsbVals[2]) +")"
+                ColorFormatter.appendHEXA(color.getRGB(), 0, new StringBuilder()).toString(),
+                ColorFormatter.appendHEXA(color.getRGB(), 1, new StringBuilder()).toString()
         };
     }
 
     /**
-     * Source: <a href="https://en.wikipedia.org/wiki/HSL_and_HSV#HSV_to_HSL">Wikipedia: HSL_and_HSV</a>.
+     * Same as above, but for packed 0xRRGGBB ints. Alpha bits are ignored.
      */
-    public static String[] colorToHSL(Color color) {
-        final float[] normalizedVals = Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), null);
-        final float[] auxValues = new float[3];
-        auxValues[0] = normalizedVals[0];
-        auxValues[2] = (2f - normalizedVals[1]) * normalizedVals[2] / 2f;
-        auxValues[1] = sInHSBtoHSL(normalizedVals[2], auxValues[2]);
-        final int[] hslValues = new int[3];
-        hslValues[0] = Math.round(auxValues[0] * 360f);
-        hslValues[1] = Math.round(auxValues[1] * 100f);
-        hslValues[2] = Math.round(auxValues[2] * 100f);
+    public static String[] packedToRGB(int rgb) {
+        return ColorFormatter.formatAll(ColorSpace.RGB, rgb);
+    }
 
-        return new String[]{
-                "[hue = " + hslValues[0] + "°, saturation = " + hslValues[1] + "%, lightness = " + hslValues[2] + "%] ",
-                "(" + hslValues[0] + ", " + hslValues[1] + ", " + hslValues[2] + ") ",
-                "(" + hslValues[0] + ", " + percentToDecimal(hslValues[1]) + ", " + percentToDecimal(hslValues[2]) + ")"
-        };
+    public static String[] packedToHEX(int rgb) {
+        return ColorFormatter.formatAll(ColorSpace.HEX, rgb);
+    }
+
+    public static String[] packedToDEC(int rgb) {
+        return ColorFormatter.formatAll(ColorSpace.DEC, rgb);
+    }
+
+    public static String[] packedToHSBHSV(int rgb) {
+        return ColorFormatter.formatAll(ColorSpace.HSB_HSV, rgb);
     }
 
     /**
-     * Utility method that calculates "Saturation" for HSL color space from HSB/HSV color space.
+     * Source: <a href="https://en.wikipedia.org/wiki/HSL_and_HSV#HSV_to_HSL">Wikipedia: HSL_and_HSV</a>.
      */
-    private static float sInHSBtoHSL(float b, float l) {
-        if (l == 0f || l == 1f) {
-            return 0f;
-        } else {
-            return (b - l) / Math.min(l, 1f - l);
-        }
+    public static String[] packedToHSL(int rgb) {
+        return ColorFormatter.formatAll(ColorSpace.HSL, rgb);
     }
 
     /**
      * Source: <a href="https://www.rapidtables.com/convert/color/rgb-to-cmyk.html">rapidtables</a>.
      */
-    public static String[] colorToCMYK(Color color) {
-        final float redPrime = ((float) color.getRed()) / 255f;
-        final float greenPrime = ((float) color.getGreen()) / 255f;
-        final float bluePrime = ((float) color.getBlue()) / 255f;
+    public static String[] packedToCMYK(int rgb) {
+        return ColorFormatter.formatAll(ColorSpace.CMYK, rgb);
+    }
+
+    /**
+     * Source: <a href="https://en.wikipedia.org/wiki/CIELAB_color_space">Wikipedia: CIELAB color space</a>.
+     */
+    public static String[] colorToLab(Color color) {
+        return packedToLab(color.getRGB());
+    }
+
+    /**
+     * Source: <a href="https://bottosson.github.io/posts/oklab/">A perceptual color space for image processing</a>.
+     */
+    public static String[] colorToOKLab(Color color) {
+        return packedToOKLab(color.getRGB());
+    }
+
+    public static String[] colorToOKLCH(Color color) {
+        return packedToOKLCH(color.getRGB());
+    }
+
+    /**
+     * The decimals are written by ColorFormatter.appendFixed, which rounds like "%.2f" and "%.4f" but never prints "-0.00"
+     * for the tiny negative components of greys.
+     */
+    public static String[] packedToLab(int rgb) {
+        final double[] lab = PerceptualColor.rgbToLab(rgb, new double[3]);
+        final StringBuilder verbose = new StringBuilder(40).append("[L = ");
+
+        ColorFormatter.appendFixed(verbose, lab[0], 2).append(", a = ");
+        ColorFormatter.appendFixed(verbose, lab[1], 2).append(", b = ");
+        ColorFormatter.appendFixed(verbose, lab[2], 2).append(']');
 
-        final float blackKey = 1f - Math.max(Math.max(redPrime, greenPrime), bluePrime);
+        return new String[]{verbose.toString(), tuple(lab, 2)};
+    }
+
+    public static String[] packedToOKLab(int rgb) {
+        final double[] lab = PerceptualColor.rgbToOklab(rgb, new double[3]);
+        final StringBuilder verbose = new StringBuilder(48).append("[L = ");
+
+        ColorFormatter.appendFixed(verbose, lab[0], 4).append(", a = ");
+        ColorFormatter.appendFixed(verbose, lab[1], 4).append(", b = ");
+        ColorFormatter.appendFixed(verbose, lab[2], 4).append(']');
+
+        return new String[]{verbose.toString(), tuple(lab, 4)};
+    }
+
+    public static String[] packedToOKLCH(int rgb) {
+        final double[] lch = PerceptualColor.rgbToOklch(rgb, new double[3]);
+        final StringBuilder verbose = new StringBuilder(48).append("[L = ");
+        final StringBuilder css = new StringBuilder(32).append("oklch(");
 
-        float cyan = 0f;
-        float magenta = 0f;
-        float yellow = 0f;
+        ColorFormatter.appendFixed(verbose, lch[0], 4).append(", C = ");
+        ColorFormatter.appendFixed(verbose, lch[1], 4).append(", h = ");
+        ColorFormatter.appendFixed(verbose, lch[2], 2).append("°]");
 
-        if (blackKey != 1f) {
-            cyan = (1f - redPrime - blackKey) / (1f - blackKey);
-            magenta = (1f - greenPrime - blackKey) / (1f - blackKey);
-            yellow = (1f - bluePrime - blackKey) / (1f - blackKey);
+        ColorFormatter.appendFixed(css, lch[0] * 100, 2).append("% ");
+        ColorFormatter.appendFixed(css, lch[1], 4).append(' ');
+        ColorFormatter.appendFixed(css, lch[2], 2).append(')');
+
+        return new String[]{verbose.toString(), css.toString()};
+    }
+
+    /**
+     * "(x, y, z)" with the given number of fraction digits.
+     */
+    private static String tuple(double[] values, int fractionDigits) {
+        final StringBuilder tuple = new StringBuilder(32).append('(');
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                tuple.append(", ");
+            }
+
+            ColorFormatter.appendFixed(tuple, values[i], fractionDigits);
         }
 
-        return new String[]{
-                "[cyan = " + normalizeDecimal(cyan) + ", magenta = " + normalizeDecimal(magenta) + ", yellow = " + normalizeDecimal(yellow) + ", black key = " + normalizeDecimal(blackKey) + "]",
-                "(" + normalizeDecimal(cyan) + ", " + normalizeDecimal(magenta) + ", " + normalizeDecimal(yellow) + ", " + normalizeDecimal(blackKey) + ")",
-                "(" + Math.round(cyan * 100f) + "%, " + Math.round(magenta * 100f) + "%, " + Math.round(yellow * 100f) + "%, " + Math.round(blackKey * 100f) + "%)"
-        };
+        return tuple.append(')').toString();
     }
 }
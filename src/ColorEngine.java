@@ -0,0 +1,368 @@
+/**
+ * Primitive conversion core. Colors are packed 0xRRGGBB ints (alpha bits are ignored),
+ * results go into caller-supplied buffers and nothing in here touches java.awt.Color.
+ * <br>
+ * <br>
+ * Units follow the text representations: HSB/HSV components are normalized to [0, 1] like in java.awt.Color,
+ * HSL hue is given in degrees and saturation/lightness in [0, 1], CMYK components are in [0, 1].
+ */
+public final class ColorEngine {
+    /**
+     * Returned by the non-throwing conversions when a channel ends up outside of [0, 255].
+     */
+    static final int OUT_OF_RANGE = -1;
+
+    /**
+     * Utility Class for all primitive calculations.
+     */
+    private ColorEngine() {}
+
+    /**
+     * Packs the three channels into 0xRRGGBB. Throws the same way the Color constructor does on out of range channels.
+     */
+    public static int rgb(int r, int g, int b) {
+        final int rgb = pack(r, g, b);
+
+        if (rgb == OUT_OF_RANGE) {
+            throw new IllegalArgumentException("Color parameter outside of expected range: " + r + ", " + g + ", " + b);
+        }
+
+        return rgb;
+    }
+
+    /**
+     * Same as above, but signals out of range channels with OUT_OF_RANGE instead of throwing.
+     */
+    static int pack(int r, int g, int b) {
+        if ((r | g | b) >>> 8 != 0) {
+            return OUT_OF_RANGE;
+        }
+
+        return (r << 16) | (g << 8) | b;
+    }
+
+    public static int red(int rgb) {
+        return (rgb >> 16) & 0xFF;
+    }
+
+    public static int green(int rgb) {
+        return (rgb >> 8) & 0xFF;
+    }
+
+    public static int blue(int rgb) {
+        return rgb & 0xFF;
+    }
+
+    /**
+     * Methods that convert any color representation to a packed color.
+     * <br>
+     * <br>
+     * Same algorithm as java.awt.Color.HSBtoRGB.
+     */
+    public static int hsbToRgb(float hue, float sat, float brt) {
+        int r = 0;
+        int g = 0;
+        int b = 0;
+
+        if (sat == 0f) {
+            r = g = b = (int) (brt * 255f + 0.5f);
+        } else {
+            final float h = (hue - (float) Math.floor(hue)) * 6f;
+            final float f = h - (float) Math.floor(h);
+            final float p = brt * (1f - sat);
+            final float q = brt * (1f - sat * f);
+            final float t = brt * (1f - (sat * (1f - f)));
+
+            switch ((int) h) {
+                case 0 -> {
+                    r = (int) (brt * 255f + 0.5f);
+                    g = (int) (t * 255f + 0.5f);
+                    b = (int) (p * 255f + 0.5f);
+                }
+                case 1 -> {
+                    r = (int) (q * 255f + 0.5f);
+                    g = (int) (brt * 255f + 0.5f);
+                    b = (int) (p * 255f + 0.5f);
+                }
+                case 2 -> {
+                    r = (int) (p * 255f + 0.5f);
+                    g = (int) (brt * 255f + 0.5f);
+                    b = (int) (t * 255f + 0.5f);
+                }
+                case 3 -> {
+                    r = (int) (p * 255f + 0.5f);
+                    g = (int) (q * 255f + 0.5f);
+                    b = (int) (brt * 255f + 0.5f);
+                }
+                case 4 -> {
+                    r = (int) (t * 255f + 0.5f);
+                    g = (int) (p * 255f + 0.5f);
+                    b = (int) (brt * 255f + 0.5f);
+                }
+                case 5 -> {
+                    r = (int) (brt * 255f + 0.5f);
+                    g = (int) (p * 255f + 0.5f);
+                    b = (int) (q * 255f + 0.5f);
+                }
+                default -> {}
+            }
+        }
+
+        return ((r << 16) | (g << 8) | b) & 0xFFFFFF;
+    }
+
+    /**
+     * Source: <a href="https://en.wikipedia.org/wiki/HSL_and_HSV#HSL_to_RGB">Wikipedia: HSL and HSV</a>.
+     */
+    public static int hslToRgb(float hue, float sat, float lgt) {
+        final int rgb = hslToPacked(hue, sat, lgt);
+
+        if (rgb == OUT_OF_RANGE) {
+            throw new IllegalArgumentException("HSL values outside of expected range: " + hue + ", " + sat + ", " + lgt);
+        }
+
+        return rgb;
+    }
+
+    /**
+     * Non-throwing variant of hslToRgb, returns OUT_OF_RANGE instead.
+     */
+    static int hslToPacked(float hue, float sat, float lgt) {
+        final float huePrime = hue / 60f;
+
+        final float chroma = (1f - Math.abs(2f * lgt - 1f)) * sat;
+        final float componentX = chroma * (1f - Math.abs((huePrime % 2) - 1f));
+        final float corrector = lgt - (chroma / 2f);
+
+        float r = 0f;
+        float g = 0f;
+        float b = 0f;
+
+        switch ((int) Math.floor(huePrime)) {
+            case 0 -> {
+                r = chroma;
+                g = componentX;
+            }
+            case 1 -> {
+                r = componentX;
+                g = chroma;
+            }
+            case 2 -> {
+                g = chroma;
+                b = componentX;
+            }
+            case 3 -> {
+                g = componentX;
+                b = chroma;
+            }
+            case 4 -> {
+                r = componentX;
+                b = chroma;
+            }
+            default -> {
+                r = chroma;
+                b = componentX;
+            }
+        }
+
+        return pack(Math.round((r + corrector) * 255), Math.round((g + corrector) * 255), Math.round((b + corrector) * 255));
+    }
+
+    /**
+     * Source: <a href="https://www.rapidtables.com/convert/color/cmyk-to-rgb.html">rapidtables</a>.
+     */
+    public static int cmykToRgb(float c, float m, float y, float k) {
+        final int rgb = cmykToPacked(c, m, y, k);
+
+        if (rgb == OUT_OF_RANGE) {
+            throw new IllegalArgumentException("CMYK values outside of expected range: " + c + ", " + m + ", " + y + ", " + k);
+        }
+
+        return rgb;
+    }
+
+    /**
+     * Non-throwing variant of cmykToRgb, returns OUT_OF_RANGE instead.
+     */
+    static int cmykToPacked(float c, float m, float y, float k) {
+        final int r = Math.round(255f * (1f - c) * (1f - k));
+        final int g = Math.round(255f * (1f - m) * (1f - k));
+        final int b = Math.round(255f * (1f - y) * (1f - k));
+
+        return pack(r, g, b);
+    }
+
+    /**
+     * Methods that convert a packed color into any color representation.
+     * <br>
+     * <br>
+     * Same algorithm as java.awt.Color.RGBtoHSB. Writes hue, saturation and brightness into out[0..2].
+     */
+    public static float[] rgbToHsb(int rgb, float[] out) {
+        out[0] = hsbHue(rgb);
+        out[1] = hsbSaturation(rgb);
+        out[2] = hsbBrightness(rgb);
+
+        return out;
+    }
+
+    public static double[] rgbToHsb(int rgb, double[] out) {
+        out[0] = hsbHue(rgb);
+        out[1] = hsbSaturation(rgb);
+        out[2] = hsbBrightness(rgb);
+
+        return out;
+    }
+
+    /**
+     * Source: <a href="https://en.wikipedia.org/wiki/HSL_and_HSV#HSV_to_HSL">Wikipedia: HSL_and_HSV</a>.
+     * Writes hue (in degrees), saturation and lightness into out[0..2].
+     */
+    public static float[] rgbToHsl(int rgb, float[] out) {
+        final float brt = hsbBrightness(rgb);
+        final float lgt = hslLightness(rgb);
+
+        out[0] = hsbHue(rgb) * 360f;
+        out[1] = sInHSBtoHSL(brt, lgt);
+        out[2] = lgt;
+
+        return out;
+    }
+
+    public static double[] rgbToHsl(int rgb, double[] out) {
+        final float brt = hsbBrightness(rgb);
+        final float lgt = hslLightness(rgb);
+
+        out[0] = hsbHue(rgb) * 360f;
+        out[1] = sInHSBtoHSL(brt, lgt);
+        out[2] = lgt;
+
+        return out;
+    }
+
+    /**
+     * Source: <a href="https://www.rapidtables.com/convert/color/rgb-to-cmyk.html">rapidtables</a>.
+     * Writes cyan, magenta, yellow and black key into out[0..3].
+     */
+    public static float[] rgbToCmyk(int rgb, float[] out) {
+        final float blackKey = cmykBlackKey(rgb);
+
+        out[0] = cmykComponent(red(rgb), blackKey);
+        out[1] = cmykComponent(green(rgb), blackKey);
+        out[2] = cmykComponent(blue(rgb), blackKey);
+        out[3] = blackKey;
+
+        return out;
+    }
+
+    public static double[] rgbToCmyk(int rgb, double[] out) {
+        final float blackKey = cmykBlackKey(rgb);
+
+        out[0] = cmykComponent(red(rgb), blackKey);
+        out[1] = cmykComponent(green(rgb), blackKey);
+        out[2] = cmykComponent(blue(rgb), blackKey);
+        out[3] = blackKey;
+
+        return out;
+    }
+
+    /**
+     * Single components, so that both buffer types share the exact same float math.
+     */
+    static float hsbHue(int rgb) {
+        final int r = red(rgb);
+        final int g = green(rgb);
+        final int b = blue(rgb);
+
+        final int cmax = Math.max(Math.max(r, g), b);
+        final int cmin = Math.min(Math.min(r, g), b);
+
+        if (cmax == cmin) {
+            return 0f;
+        }
+
+        final float redc = ((float) (cmax - r)) / ((float) (cmax - cmin));
+        final float greenc = ((float) (cmax - g)) / ((float) (cmax - cmin));
+        final float bluec = ((float) (cmax - b)) / ((float) (cmax - cmin));
+
+        float hue;
+
+        if (r == cmax) {
+            hue = bluec - greenc;
+        } else if (g == cmax) {
+            hue = 2f + redc - bluec;
+        } else {
+            hue = 4f + greenc - redc;
+        }
+
+        hue = hue / 6f;
+
+        return hue < 0f ? hue + 1f : hue;
+    }
+
+    static float hsbSaturation(int rgb) {
+        final int cmax = Math.max(Math.max(red(rgb), green(rgb)), blue(rgb));
+        final int cmin = Math.min(Math.min(red(rgb), green(rgb)), blue(rgb));
+
+        return cmax != 0 ? ((float) (cmax - cmin)) / ((float) cmax) : 0f;
+    }
+
+    static float hsbBrightness(int rgb) {
+        return ((float) Math.max(Math.max(red(rgb), green(rgb)), blue(rgb))) / 255f;
+    }
+
+    static float hslLightness(int rgb) {
+        return (2f - hsbSaturation(rgb)) * hsbBrightness(rgb) / 2f;
+    }
+
+    static float cmykBlackKey(int rgb) {
+        final float redPrime = ((float) red(rgb)) / 255f;
+        final float greenPrime = ((float) green(rgb)) / 255f;
+        final float bluePrime = ((float) blue(rgb)) / 255f;
+
+        return 1f - Math.max(Math.max(redPrime, greenPrime), bluePrime);
+    }
+
+    static float cmykComponent(int channel, float blackKey) {
+        if (blackKey == 1f) {
+            return 0f;
+        }
+
+        return (1f - ((float) channel) / 255f - blackKey) / (1f - blackKey);
+    }
+
+    /**
+     * Utility method to take into account that the color circle repeats with a period of 360 degrees.
+     * Normalizes angles to range [0, 360) (0 inclusive to 360 exclusive).
+     */
+    static int cyclicPeriodicity(int hue) {
+        hue %= 360;
+
+        return hue >= 0 ? hue : hue + 360;
+    }
+
+    /**
+     * Same as above for fractional degrees.
+     */
+    static float cyclicPeriodicity(float hue) {
+        // % on floats is a slow library call, so hues at most one period too far skip it. The subtraction is exact there.
+        if (hue >= 0f && hue < 720f) {
+            return hue < 360f ? hue : hue - 360f;
+        }
+
+        hue %= 360f;
+
+        return hue >= 0f ? hue : hue + 360f;
+    }
+
+    /**
+     * Utility method that calculates "Saturation" for HSL color space from HSB/HSV color space.
+     */
+    static float sInHSBtoHSL(float b, float l) {
+        if (l == 0f || l == 1f) {
+            return 0f;
+        } else {
+            return (b - l) / Math.min(l, 1f - l);
+        }
+    }
+}
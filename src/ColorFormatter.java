@@ -0,0 +1,460 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Formatters that write one notation of a packed color straight into a StringBuilder, any Appendable or a
+ * ByteBuffer (as UTF-8). Numbers are emitted digit by digit from the rounded fixed-point values in ColorTable,
+ * so nothing is allocated and String.format is never involved.
+ * <br>
+ * <br>
+ * The style is the index of the notation within the arrays the ColorCalc methods return.
+ */
+public final class ColorFormatter {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final int[] POWERS_OF_TEN = {1_000_000_000, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+
+    /**
+     * The ByteBuffer variants reuse one adapter per thread, so they don't allocate either.
+     */
+    private static final ThreadLocal<ByteBufferAppendable> BYTE_SINKS = ThreadLocal.withInitial(ByteBufferAppendable::new);
+
+    /**
+     * Utility Class for formatting.
+     */
+    private ColorFormatter() {}
+
+    /**
+     * All notations of the color, as returned by the ColorCalc methods.
+     */
+    public static String[] formatAll(ColorSpace space, int rgb) {
+        final String[] output = new String[space.styles()];
+        final StringBuilder builder = new StringBuilder(48);
+
+        for (int style = 0; style < output.length; style++) {
+            builder.setLength(0);
+            output[style] = append(space, style, rgb, builder).toString();
+        }
+
+        return output;
+    }
+
+    public static StringBuilder append(ColorSpace space, int style, int rgb, StringBuilder out) {
+        try {
+            return appendTo(space, style, rgb, out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static <A extends Appendable> A append(ColorSpace space, int style, int rgb, A out) throws IOException {
+        return appendTo(space, style, rgb, out);
+    }
+
+    /**
+     * Writes UTF-8 at the position of the buffer and advances it. Throws BufferOverflowException if it doesn't fit.
+     */
+    public static ByteBuffer append(ColorSpace space, int style, int rgb, ByteBuffer out) {
+        final ByteBufferAppendable sink = BYTE_SINKS.get();
+        sink.buffer = out;
+
+        try {
+            appendTo(space, style, rgb, sink);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            sink.buffer = null;
+        }
+
+        return out;
+    }
+
+    /**
+     * Methods that write CMYK through a CmykProfile instead of the formula, in the styles of the CMYK color space.
+     */
+    public static StringBuilder appendCMYK(CmykProfile profile, int style, int rgb, StringBuilder out) {
+        try {
+            return appendProfileCMYK(profile, style, rgb, out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static ByteBuffer appendCMYK(CmykProfile profile, int style, int rgb, ByteBuffer out) {
+        final ByteBufferAppendable sink = BYTE_SINKS.get();
+        sink.buffer = out;
+
+        try {
+            appendProfileCMYK(profile, style, rgb, sink);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            sink.buffer = null;
+        }
+
+        return out;
+    }
+
+    /**
+     * All notations, as returned by ColorCalc.colorToCMYK.
+     */
+    public static String[] formatAllCMYK(CmykProfile profile, int rgb) {
+        final String[] output = new String[ColorSpace.CMYK.styles()];
+        final StringBuilder builder = new StringBuilder(48);
+
+        for (int style = 0; style < output.length; style++) {
+            builder.setLength(0);
+            output[style] = appendCMYK(profile, style, rgb, builder).toString();
+        }
+
+        return output;
+    }
+
+    private static <A extends Appendable> A appendProfileCMYK(CmykProfile profile, int style, int rgb, A out) throws IOException {
+        if (profile.isFormula()) {
+            return appendTo(ColorSpace.CMYK, style, rgb, out);
+        } else if (style < 0 || style >= ColorSpace.CMYK.styles()) {
+            throw new IllegalArgumentException(ColorSpace.CMYK.label() + " only has styles 0 to " + (ColorSpace.CMYK.styles() - 1));
+        }
+
+        appendCMYKEntry(style, profile.cmykEntry(rgb), out);
+
+        return out;
+    }
+
+    /**
+     * Methods that write a packed 0xAARRGGBB color with its alpha, the counterparts of the ColorParser alpha methods.
+     * Alpha is written as a decimal with two digits.
+     * <br>
+     * <br>
+     * "(r, g, b, a)"
+     */
+    public static StringBuilder appendRGBA(int argb, StringBuilder out) {
+        out.append('(');
+        appendUnchecked(out, ColorEngine.red(argb));
+        out.append(", ");
+        appendUnchecked(out, ColorEngine.green(argb));
+        out.append(", ");
+        appendUnchecked(out, ColorEngine.blue(argb));
+
+        return appendAlpha(argb, out);
+    }
+
+    /**
+     * "(h, s, l, a)" with hue in degrees, saturation and lightness in percent.
+     */
+    public static StringBuilder appendHSLA(int argb, StringBuilder out) {
+        final int entry = ColorTable.hsl(argb & 0xFFFFFF);
+
+        out.append('(');
+        appendUnchecked(out, ColorTable.hue(entry));
+        out.append(", ");
+        appendUnchecked(out, ColorTable.saturation(entry));
+        out.append(", ");
+        appendUnchecked(out, ColorTable.third(entry));
+
+        return appendAlpha(argb, out);
+    }
+
+    /**
+     * Style 0 is Java's "0xAARRGGBB", style 1 is CSS's "#RRGGBBAA".
+     */
+    public static StringBuilder appendHEXA(int argb, int style, StringBuilder out) {
+        if (style != 0 && style != 1) {
+            throw new IllegalArgumentException("HEXA only has styles 0 to 1");
+        }
+
+        final int value = style == 0 ? argb : argb << 8 | argb >>> 24;
+        out.append(style == 0 ? "0x" : "#");
+
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            out.append(HEX_DIGITS[(value >>> shift) & 0xF]);
+        }
+
+        return out;
+    }
+
+    private static StringBuilder appendAlpha(int argb, StringBuilder out) {
+        out.append(", ");
+
+        try {
+            appendHundredths(out, ((argb >>> 24) * 100 + 127) / 255);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return out.append(')');
+    }
+
+    private static void appendUnchecked(StringBuilder out, int value) {
+        try {
+            appendInt(out, value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static <A extends Appendable> A appendTo(ColorSpace space, int style, int rgb, A out) throws IOException {
+        if (style < 0 || style >= space.styles()) {
+            throw new IllegalArgumentException(space.label() + " only has styles 0 to " + (space.styles() - 1));
+        }
+
+        if (!ConversionMetrics.ENABLED) {
+            return appendStyle(space, style, rgb, out);
+        }
+
+        final long start = System.nanoTime();
+        appendStyle(space, style, rgb, out);
+        ConversionMetrics.formatted(space, System.nanoTime() - start);
+
+        return out;
+    }
+
+    private static <A extends Appendable> A appendStyle(ColorSpace space, int style, int rgb, A out) throws IOException {
+        switch (space) {
+            case RGB -> appendRGB(style, rgb, out);
+            case HEX -> appendHEX(style, rgb, out);
+            case DEC -> appendInt(out, rgb & 0xFFFFFF);
+            case HSB_HSV -> appendHSBHSV(style, rgb, out);
+            case HSL -> appendHSL(style, rgb, out);
+            case CMYK -> appendCMYK(style, rgb, out);
+        }
+
+        return out;
+    }
+
+    /**
+     * Methods that write a single notation.
+     */
+    private static void appendRGB(int style, int rgb, Appendable out) throws IOException {
+        final int r = ColorEngine.red(rgb);
+        final int g = ColorEngine.green(rgb);
+        final int b = ColorEngine.blue(rgb);
+
+        if (style == 0) {
+            out.append("[red = ");
+            appendInt(out, r);
+            out.append(", green = ");
+            appendInt(out, g);
+            out.append(", blue = ");
+            appendInt(out, b);
+            out.append(']');
+        } else {
+            out.append('(');
+            appendInt(out, r);
+            out.append(", ");
+            appendInt(out, g);
+            out.append(", ");
+            appendInt(out, b);
+            out.append(')');
+        }
+    }
+
+    private static void appendHEX(int style, int rgb, Appendable out) throws IOException {
+        if (style == 0) {
+            out.append("0x");
+        } else if (style == 1) {
+            out.append('#');
+        }
+
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            out.append(HEX_DIGITS[(rgb >> shift) & 0xF]);
+        }
+    }
+
+    private static void appendHSBHSV(int style, int rgb, Appendable out) throws IOException {
+        final int entry = ColorTable.hsb(rgb);
+        appendHueTuple(style, entry, "brightness", "]", ")", out);
+    }
+
+    /**
+     * Source: <a href="https://en.wikipedia.org/wiki/HSL_and_HSV#HSV_to_HSL">Wikipedia: HSL_and_HSV</a>.
+     */
+    private static void appendHSL(int style, int rgb, Appendable out) throws IOException {
+        final int entry = ColorTable.hsl(rgb);
+        appendHueTuple(style, entry, "lightness", "] ", ") ", out);
+    }
+
+    /**
+     * HSB/HSV and HSL only differ in the name of the third component (and HSL always had a trailing space).
+     */
+    private static void appendHueTuple(int style, int entry, String third, String verboseEnd, String tupleEnd, Appendable out) throws IOException {
+        final int hue = ColorTable.hue(entry);
+        final int sat = ColorTable.saturation(entry);
+        final int thd = ColorTable.third(entry);
+
+        if (style == 0) {
+            out.append("[hue = ");
+            appendInt(out, hue);
+            out.append("°, saturation = ");
+            appendInt(out, sat);
+            out.append("%, ").append(third).append(" = ");
+            appendInt(out, thd);
+            out.append('%').append(verboseEnd);
+        } else if (style == 1) {
+            out.append('(');
+            appendInt(out, hue);
+            out.append(", ");
+            appendInt(out, sat);
+            out.append(", ");
+            appendInt(out, thd);
+            out.append(tupleEnd);
+        } else {
+            out.append('(');
+            appendInt(out, hue);
+            out.append(", ");
+            appendHundredths(out, sat);
+            out.append(", ");
+            appendHundredths(out, thd);
+            out.append(')');
+        }
+    }
+
+    /**
+     * Source: <a href="https://www.rapidtables.com/convert/color/rgb-to-cmyk.html">rapidtables</a>.
+     */
+    private static void appendCMYK(int style, int rgb, Appendable out) throws IOException {
+        appendCMYKEntry(style, ColorTable.cmyk(rgb), out);
+    }
+
+    /**
+     * Any ColorTable CMYK entry, in the styles of the CMYK color space.
+     */
+    private static void appendCMYKEntry(int style, int entry, Appendable out) throws IOException {
+        if (style == 0) {
+            out.append("[cyan = ");
+            appendHundredths(out, ColorTable.cmykHundredths(entry, 0));
+            out.append(", magenta = ");
+            appendHundredths(out, ColorTable.cmykHundredths(entry, 1));
+            out.append(", yellow = ");
+            appendHundredths(out, ColorTable.cmykHundredths(entry, 2));
+            out.append(", black key = ");
+            appendHundredths(out, ColorTable.cmykHundredths(entry, 3));
+            out.append(']');
+        } else if (style == 1) {
+            out.append('(');
+
+            for (int channel = 0; channel < 4; channel++) {
+                if (channel > 0) {
+                    out.append(", ");
+                }
+
+                appendHundredths(out, ColorTable.cmykHundredths(entry, channel));
+            }
+
+            out.append(')');
+        } else {
+            out.append('(');
+
+            for (int channel = 0; channel < 4; channel++) {
+                if (channel > 0) {
+                    out.append(", ");
+                }
+
+                appendInt(out, ColorTable.cmykPercent(entry, channel));
+                out.append('%');
+            }
+
+            out.append(')');
+        }
+    }
+
+    /**
+     * Fixed-point digit emission.
+     */
+    static void appendInt(Appendable out, int value) throws IOException {
+        if (value < 0) {
+            out.append('-');
+
+            if (value == Integer.MIN_VALUE) {
+                out.append("2147483648");
+                return;
+            }
+
+            value = -value;
+        }
+
+        int power = POWERS_OF_TEN.length - 1;
+
+        while (power > 0 && POWERS_OF_TEN[power - 1] <= value) {
+            power--;
+        }
+
+        for (; power < POWERS_OF_TEN.length; power++) {
+            final int digit = value / POWERS_OF_TEN[power];
+            out.append((char) ('0' + digit));
+            value -= digit * POWERS_OF_TEN[power];
+        }
+    }
+
+    /**
+     * Writes hundredths as a decimal with exactly two fraction digits, e.g. 92 as "0.92", just like "%.2f".
+     */
+    static void appendHundredths(Appendable out, int hundredths) throws IOException {
+        appendInt(out, hundredths / 100);
+        out.append('.');
+        out.append((char) ('0' + (hundredths / 10) % 10));
+        out.append((char) ('0' + hundredths % 10));
+    }
+
+    /**
+     * Writes the value with the given number of fraction digits (at most 9), rounded half up like "%.nf".
+     * Values that round to zero never get a minus sign.
+     */
+    static StringBuilder appendFixed(StringBuilder out, double value, int fractionDigits) {
+        final long scale = POWERS_OF_TEN[POWERS_OF_TEN.length - 1 - fractionDigits];
+        final long scaled = Math.round(Math.abs(value) * scale);
+
+        if (value < 0 && scaled != 0) {
+            out.append('-');
+        }
+
+        out.append(scaled / scale).append('.');
+
+        for (long power = scale / 10; power > 0; power /= 10) {
+            out.append((char) ('0' + (scaled / power) % 10));
+        }
+
+        return out;
+    }
+
+    /**
+     * Reusable Appendable that encodes into a ByteBuffer as UTF-8.
+     */
+    private static final class ByteBufferAppendable implements Appendable {
+        private ByteBuffer buffer;
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++) {
+                append(csq.charAt(i));
+            }
+
+            return this;
+        }
+
+        /**
+         * All characters written here are in the Basic Multilingual Plane, so there are no surrogates to handle.
+         */
+        @Override
+        public Appendable append(char c) {
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+
+            return this;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * How often each of the 2^24 packed colors occurs, e.g. in an image or a palette with duplicates.
+ * <br>
+ * <br>
+ * DENSE storage keeps one int counter per color (64 MB): constant time per color, bulk adds and set operations
+ * run in parallel on the common pool. SPARSE storage is an open-addressing hash table that only grows with the
+ * number of distinct colors, for histograms of a few thousand or million colors. Both behave the same.
+ * <br>
+ * <br>
+ * Counts saturate at Integer.MAX_VALUE. The set operations treat histograms as multisets: union adds the counts,
+ * intersection keeps the smaller one, difference subtracts down to 0. Iteration is in ascending color order.
+ * Not thread-safe, apart from the parallelism within one call.
+ */
+public final class ColorHistogram {
+    public enum Storage {
+        DENSE,
+        SPARSE
+    }
+
+    /**
+     * Called with each color that occurs and its count.
+     */
+    @FunctionalInterface
+    public interface CountConsumer {
+        void accept(int rgb, int count);
+    }
+
+    private static final VarHandle COUNTER = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private final Storage storage;
+
+    /**
+     * DENSE: count per color.
+     */
+    private final int[] counts;
+
+    /**
+     * SPARSE: colors (EMPTY for free slots) and their counts at the same index, at most half full.
+     */
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public ColorHistogram(Storage storage) {
+        this.storage = storage;
+        this.counts = storage == Storage.DENSE ? new int[ColorSet.COLORS] : null;
+
+        if (storage == Storage.SPARSE) {
+            allocate(INITIAL_CAPACITY);
+        }
+    }
+
+    private ColorHistogram(ColorHistogram original) {
+        this.storage = original.storage;
+        this.counts = original.counts == null ? null : original.counts.clone();
+
+        if (storage == Storage.SPARSE) {
+            keys = original.keys.clone();
+            values = original.values.clone();
+            size = original.size;
+        }
+    }
+
+    public Storage storage() {
+        return storage;
+    }
+
+    /**
+     * Methods for single colors. Alpha bits are ignored.
+     */
+    public void add(int rgb) {
+        add(rgb, 1);
+    }
+
+    public void add(int rgb, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Counts can't be negative: " + count);
+        }
+
+        final int color = rgb & 0xFFFFFF;
+
+        if (counts != null) {
+            counts[color] = saturatedAdd(counts[color], count);
+        } else if (count > 0) {
+            final int slot = slot(color);
+
+            if (keys[slot] == EMPTY) {
+                insert(slot, color, count);
+            } else {
+                values[slot] = saturatedAdd(values[slot], count);
+            }
+        }
+    }
+
+    public int count(int rgb) {
+        final int color = rgb & 0xFFFFFF;
+
+        if (counts != null) {
+            return counts[color];
+        }
+
+        final int slot = slot(color);
+
+        return keys[slot] == EMPTY ? 0 : values[slot];
+    }
+
+    /**
+     * Methods that add many colors.
+     * <br>
+     * <br>
+     * Counts every packed color once, alpha bits are ignored. In parallel for DENSE storage.
+     */
+    public ColorHistogram addAll(int[] colors) {
+        addParsed(colors, colors.length, false);
+
+        return this;
+    }
+
+    /**
+     * Parses every input like ColorBulk.parse and counts the colors. Returns the number of inputs that can't be read.
+     */
+    public int addAll(List<? extends CharSequence> inputs, ColorSpace from) {
+        final int[] parsed = new int[inputs.size()];
+        final int errors = ColorBulk.parse(inputs, from, parsed);
+
+        addParsed(parsed, parsed.length, true);
+
+        return errors;
+    }
+
+    /**
+     * Same for every line, blank ones are skipped. Reads in chunks, so the lines never need to fit into memory.
+     */
+    public long addAll(BufferedReader lines, ColorSpace from) throws IOException {
+        return ColorSet.parseLines(lines, from, (parsed, length) -> addParsed(parsed, length, true));
+    }
+
+    /**
+     * Methods that combine histograms in place. They return this histogram.
+     */
+    public ColorHistogram union(ColorHistogram other) {
+        return combine(other, ColorHistogram::saturatedAdd, true);
+    }
+
+    public ColorHistogram intersect(ColorHistogram other) {
+        return combine(other, Math::min, false);
+    }
+
+    /**
+     * Subtracts the counts of the other histogram, down to 0.
+     */
+    public ColorHistogram subtract(ColorHistogram other) {
+        return combine(other, (count, otherCount) -> Math.max(0, count - otherCount), false);
+    }
+
+    public ColorHistogram copy() {
+        return new ColorHistogram(this);
+    }
+
+    /**
+     * Methods that query the whole histogram.
+     * <br>
+     * <br>
+     * Number of distinct colors.
+     */
+    public int distinct() {
+        if (counts == null) {
+            return size;
+        }
+
+        final LongAdder distinct = new LongAdder();
+
+        ColorBulk.forRange(counts.length, (from, to) -> {
+            int rangeDistinct = 0;
+
+            for (int i = from; i < to; i++) {
+                if (counts[i] != 0) {
+                    rangeDistinct++;
+                }
+            }
+
+            distinct.add(rangeDistinct);
+        });
+
+        return distinct.intValue();
+    }
+
+    /**
+     * Sum of all counts.
+     */
+    public long total() {
+        final long[] total = new long[1];
+
+        forEach((rgb, count) -> total[0] += count);
+
+        return total[0];
+    }
+
+    /**
+     * The colors that occur at least once.
+     */
+    public ColorSet colors() {
+        final ColorSet colors = new ColorSet();
+
+        forEach((rgb, count) -> colors.add(rgb));
+
+        return colors;
+    }
+
+    /**
+     * Calls the action for every color that occurs, in ascending order.
+     */
+    public void forEach(CountConsumer action) {
+        if (counts != null) {
+            for (int rgb = 0; rgb < counts.length; rgb++) {
+                if (counts[rgb] != 0) {
+                    action.accept(rgb, counts[rgb]);
+                }
+            }
+
+            return;
+        }
+
+        final int[] sorted = new int[size];
+        int found = 0;
+
+        for (int key : keys) {
+            if (key != EMPTY) {
+                sorted[found++] = key;
+            }
+        }
+
+        Arrays.sort(sorted);
+
+        for (int rgb : sorted) {
+            action.accept(rgb, values[slot(rgb)]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ColorHistogram[" + storage + ", " + distinct() + " colors]";
+    }
+
+    /**
+     * Helper methods for bulk operations.
+     * <br>
+     * <br>
+     * Counts the first length colors, skipping ColorParser error codes if asked to (packed colors with alpha
+     * are negative too).
+     */
+    private void addParsed(int[] colors, int length, boolean skipErrors) {
+        if (counts == null) {
+            for (int i = 0; i < length; i++) {
+                if (!skipErrors || !ColorParser.isError(colors[i])) {
+                    add(colors[i]);
+                }
+            }
+
+            return;
+        }
+
+        ColorBulk.forRange(length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (!skipErrors || !ColorParser.isError(colors[i])) {
+                    increment(colors[i] & 0xFFFFFF);
+                }
+            }
+        });
+    }
+
+    /**
+     * Atomic saturating increment, so threads can count the same color.
+     */
+    private void increment(int color) {
+        int count;
+
+        do {
+            count = (int) COUNTER.getVolatile(counts, color);
+        } while (count != Integer.MAX_VALUE && !COUNTER.compareAndSet(counts, color, count, count + 1));
+    }
+
+    /**
+     * Replaces every count by operator(count, other count). If the operator can make a count out of nothing, the
+     * colors of the other histogram are visited too.
+     */
+    private ColorHistogram combine(ColorHistogram operand, IntBinaryOperator operator, boolean growsFromZero) {
+        final ColorHistogram other = operand == this && counts == null ? copy() : operand;
+
+        if (counts != null) {
+            ColorBulk.forRange(counts.length, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    counts[i] = operator.applyAsInt(counts[i], other.count(i));
+                }
+            });
+
+            return this;
+        }
+
+        final int[] oldKeys = keys;
+        final int[] oldValues = values;
+
+        allocate(keys.length);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                final int count = operator.applyAsInt(oldValues[i], other.count(oldKeys[i]));
+
+                if (count > 0) {
+                    add(oldKeys[i], count);
+                }
+            }
+        }
+
+        if (growsFromZero) {
+            other.forEach((rgb, otherCount) -> {
+                if (!contains(oldKeys, rgb)) {
+                    add(rgb, operator.applyAsInt(0, otherCount));
+                }
+            });
+        }
+
+        return this;
+    }
+
+    private static int saturatedAdd(int count, int added) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) count + added);
+    }
+
+    /**
+     * Helper methods for the hash table.
+     * <br>
+     * <br>
+     * The slot holding the color, or the free slot where it belongs. Linear probing from a Fibonacci hash.
+     */
+    private int slot(int color) {
+        return slot(keys, color);
+    }
+
+    private static int slot(int[] table, int color) {
+        final int mask = table.length - 1;
+        int slot = (color * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(mask));
+
+        while (table[slot] != EMPTY && table[slot] != color) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private static boolean contains(int[] table, int color) {
+        return table[slot(table, color)] == color;
+    }
+
+    private void insert(int slot, int color, int count) {
+        keys[slot] = color;
+        values[slot] = count;
+
+        if (++size > keys.length / 2) {
+            final int[] oldKeys = keys;
+            final int[] oldValues = values;
+
+            allocate(keys.length * 2);
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    final int newSlot = slot(oldKeys[i]);
+                    keys[newSlot] = oldKeys[i];
+                    values[newSlot] = oldValues[i];
+                    size++;
+                }
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        size = 0;
+        Arrays.fill(keys, EMPTY);
+    }
+}
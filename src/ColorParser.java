@@ -0,0 +1,805 @@
+/**
+ * Single-pass parsers for all text inputs. They scan the characters once, never use regular expressions,
+ * never allocate and never throw on bad input. Instead every method returns either the packed 0xRRGGBB color
+ * (always >= 0) or one of the negative ERROR codes.
+ * <br>
+ * <br>
+ * Accepted inputs are the same as for the ColorCalc methods: brackets, spaces and (where it makes sense) % and °
+ * may appear anywhere, tuple fields are separated by commas. Fields must be plain decimal numbers (no NaN,
+ * Infinity or hexadecimal floats), and tuples must have exactly the expected number of fields.
+ */
+public final class ColorParser {
+    /**
+     * Error codes. The input doesn't have the expected shape, or it does but describes no valid color.
+     */
+    public static final int ERROR_SYNTAX = -1;
+    public static final int ERROR_RANGE = -2;
+
+    /**
+     * Characters that may appear anywhere in the input, in addition to brackets and whitespace.
+     */
+    private static final int IGNORE_PERCENT = 1;
+    private static final int IGNORE_DEGREE = 2;
+
+    /**
+     * A field is returned as its value in the lower 32 bits (an int or the bits of a float) and the index
+     * where scanning stopped (the comma or the end) in the upper 32 bits.
+     */
+    private static final long FIELD_FAILED = -1L;
+
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Function names parseAny understands, e.g. "hsv(120, 50%, 50%)", and their color spaces.
+     * The ones with alpha are parsed like parseRGBA and parseHSLA, classify flags them with WITH_ALPHA.
+     */
+    private static final String[] FUNCTION_NAMES = {"rgb", "rgba", "hsb", "hsv", "hsl", "hsla", "cmyk"};
+    private static final ColorSpace[] FUNCTION_SPACES = {ColorSpace.RGB, ColorSpace.RGB, ColorSpace.HSB_HSV, ColorSpace.HSB_HSV, ColorSpace.HSL, ColorSpace.HSL, ColorSpace.CMYK};
+    private static final boolean[] FUNCTION_ALPHA = {false, true, false, false, false, true, false};
+    private static final int WITH_ALPHA = 1 << 8;
+    private static final ColorSpace[] SPACES = ColorSpace.values();
+
+    /**
+     * The char[] variants reuse one view per thread, so they don't allocate either.
+     */
+    private static final ThreadLocal<CharArrayView> VIEWS = ThreadLocal.withInitial(CharArrayView::new);
+
+    /**
+     * Utility Class for parsing.
+     */
+    private ColorParser() {}
+
+    public static boolean isError(int result) {
+        return result < 0;
+    }
+
+    /**
+     * Methods that parse all inputs to a packed color.
+     */
+    public static int parseRGB(CharSequence input) {
+        return parseRGB(input, 0, input.length());
+    }
+
+    public static int parseRGB(char[] input, int offset, int length) {
+        return parseRGB(view(input), offset, length);
+    }
+
+    public static int parseRGB(CharSequence input, int offset, int length) {
+        final int end = end(input, offset, length);
+
+        final long red = intField(input, offset, end, 0);
+        final long green = intField(input, nextField(red, end), end, 0);
+        final long blue = intField(input, nextField(green, end), end, 0);
+
+        if (blue == FIELD_FAILED || stop(blue) != end) {
+            return ERROR_SYNTAX;
+        }
+
+        return orRangeError(ColorEngine.pack(value(red), value(green), value(blue)));
+    }
+
+    public static int parseHEX(CharSequence input) {
+        return parseHEX(input, 0, input.length());
+    }
+
+    public static int parseHEX(char[] input, int offset, int length) {
+        return parseHEX(view(input), offset, length);
+    }
+
+    /**
+     * Accepts "#", "0x" or "0X" prefixes and up to 8 hex digits. Like java.awt.Color, 8 digits are AARRGGBB and the
+     * alpha digits are dropped (see parseHEXA for CSS's #RRGGBBAA). Anything else is looked up as a color name, see parseName.
+     */
+    public static int parseHEX(CharSequence input, int offset, int length) {
+        return parseHexOrName(input, offset, end(input, offset, length), false);
+    }
+
+    public static int parseName(CharSequence input) {
+        return parseName(input, 0, input.length());
+    }
+
+    public static int parseName(char[] input, int offset, int length) {
+        return parseName(view(input), offset, length);
+    }
+
+    /**
+     * CSS Color 4 or X11 color name, ignoring case and whitespace, e.g. "rebeccapurple" or "Steel Blue".
+     */
+    public static int parseName(CharSequence input, int offset, int length) {
+        final int end = end(input, offset, length);
+
+        return NamedColors.lookup(input, offset, end - offset);
+    }
+
+    public static int parseDEC(CharSequence input) {
+        return parseDEC(input, 0, input.length());
+    }
+
+    public static int parseDEC(char[] input, int offset, int length) {
+        return parseDEC(view(input), offset, length);
+    }
+
+    /**
+     * Like ColorCalc.decToColor, everything except digits is skipped.
+     */
+    public static int parseDEC(CharSequence input, int offset, int length) {
+        final int end = end(input, offset, length);
+        long value = 0;
+        int digits = 0;
+
+        for (int i = offset; i < end; i++) {
+            final char c = input.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits++;
+
+                if (value > Integer.MAX_VALUE) {
+                    return ERROR_RANGE;
+                }
+            }
+        }
+
+        return digits == 0 ? ERROR_SYNTAX : (int) value & 0xFFFFFF;
+    }
+
+    public static int parseHSBHSV(CharSequence input) {
+        return parseHSBHSV(input, 0, input.length());
+    }
+
+    public static int parseHSBHSV(char[] input, int offset, int length) {
+        return parseHSBHSV(view(input), offset, length);
+    }
+
+    /**
+     * Hue in whole degrees, saturation and brightness/value in percent.
+     */
+    public static int parseHSBHSV(CharSequence input, int offset, int length) {
+        final int end = end(input, offset, length);
+        final int ignored = IGNORE_PERCENT | IGNORE_DEGREE;
+
+        final long hue = intField(input, offset, end, ignored);
+        final long sat = floatField(input, nextField(hue, end), end, ignored);
+        final long brt = floatField(input, nextField(sat, end), end, ignored);
+
+        if (brt == FIELD_FAILED || stop(brt) != end) {
+            return ERROR_SYNTAX;
+        }
+
+        return ColorEngine.hsbToRgb(ColorEngine.cyclicPeriodicity(value(hue)) / 360f, floatValue(sat) / 100f, floatValue(brt) / 100f);
+    }
+
+    public static int parseHSL(CharSequence input) {
+        return parseHSL(input, 0, input.length());
+    }
+
+    public static int parseHSL(char[] input, int offset, int length) {
+        return parseHSL(view(input), offset, length);
+    }
+
+    /**
+     * Hue in whole degrees, saturation and lightness in percent.
+     */
+    public static int parseHSL(CharSequence input, int offset, int length) {
+        final int end = end(input, offset, length);
+        final int ignored = IGNORE_PERCENT | IGNORE_DEGREE;
+
+        final long hue = intField(input, offset, end, ignored);
+        final long sat = floatField(input, nextField(hue, end), end, ignored);
+        final long lgt = floatField(input, nextField(sat, end), end, ignored);
+
+        if (lgt == FIELD_FAILED || stop(lgt) != end) {
+            return ERROR_SYNTAX;
+        }
+
+        return orRangeError(ColorEngine.hslToPacked(ColorEngine.cyclicPeriodicity(value(hue)), floatValue(sat) / 100f, floatValue(lgt) / 100f));
+    }
+
+    public static int parseCMYK(CharSequence input) {
+        return parseCMYK(input, 0, input.length());
+    }
+
+    public static int parseCMYK(char[] input, int offset, int length) {
+        return parseCMYK(view(input), offset, length);
+    }
+
+    /**
+     * All four components as decimals in [0, 1].
+     */
+    public static int parseCMYK(CharSequence input, int offset, int length) {
+        return parseCMYK(input, offset, length, CmykProfile.FORMULA);
+    }
+
+    /**
+     * Same, converted through the profile instead of the formula.
+     */
+    public static int parseCMYK(CharSequence input, CmykProfile profile) {
+        return parseCMYK(input, 0, input.length(), profile);
+    }
+
+    public static int parseCMYK(CharSequence input, int offset, int length, CmykProfile profile) {
+        final int end = end(input, offset, length);
+
+        final long c = floatField(input, offset, end, IGNORE_PERCENT);
+        final long m = floatField(input, nextField(c, end), end, IGNORE_PERCENT);
+        final long y = floatField(input, nextField(m, end), end, IGNORE_PERCENT);
+        final long k = floatField(input, nextField(y, end), end, IGNORE_PERCENT);
+
+        if (k == FIELD_FAILED || stop(k) != end) {
+            return ERROR_SYNTAX;
+        }
+
+        return orRangeError(profile.toPacked(floatValue(c), floatValue(m), floatValue(y), floatValue(k)));
+    }
+
+    /**
+     * Methods that parse inputs with alpha. They return the packed 0xAARRGGBB color as a non-negative long (so that
+     * alpha can use all 8 bits) or one of the negative ERROR codes.
+     * <br>
+     * <br>
+     * Alpha is an optional last tuple field, a decimal in [0, 1]. Without it the color is opaque.
+     */
+    public static boolean isError(long result) {
+        return result < 0;
+    }
+
+    public static long parseRGBA(CharSequence input) {
+        return parseRGBA(input, 0, input.length());
+    }
+
+    public static long parseRGBA(CharSequence input, int offset, int length) {
+        final int end = end(input, offset, length);
+
+        final long red = intField(input, offset, end, 0);
+        final long green = intField(input, nextField(red, end), end, 0);
+        final long blue = intField(input, nextField(green, end), end, 0);
+        final int alpha = alphaField(input, blue, end);
+
+        if (alpha == ERROR_SYNTAX) {
+            return ERROR_SYNTAX;
+        }
+
+        return withAlpha(ColorEngine.pack(value(red), value(green), value(blue)), alpha);
+    }
+
+    public static long parseHSLA(CharSequence input) {
+        return parseHSLA(input, 0, input.length());
+    }
+
+    /**
+     * Hue in whole degrees, saturation and lightness in percent like parseHSL, then alpha.
+     */
+    public static long parseHSLA(CharSequence input, int offset, int length) {
+        final int end = end(input, offset, length);
+        final int ignored = IGNORE_PERCENT | IGNORE_DEGREE;
+
+        final long hue = intField(input, offset, end, ignored);
+        final long sat = floatField(input, nextField(hue, end), end, ignored);
+        final long lgt = floatField(input, nextField(sat, end), end, ignored);
+        final int alpha = alphaField(input, lgt, end);
+
+        if (alpha == ERROR_SYNTAX) {
+            return ERROR_SYNTAX;
+        }
+
+        return withAlpha(ColorEngine.hslToPacked(ColorEngine.cyclicPeriodicity(value(hue)), floatValue(sat) / 100f, floatValue(lgt) / 100f), alpha);
+    }
+
+    public static long parseHEXA(CharSequence input) {
+        return parseHEXA(input, 0, input.length());
+    }
+
+    /**
+     * Exactly 6 or 8 hex digits. The prefix picks the order of 8 digits: "0x" is AARRGGBB like in Java,
+     * "#" or none is RRGGBBAA like in CSS.
+     */
+    public static long parseHEXA(CharSequence input, int offset, int length) {
+        final int end = end(input, offset, length);
+        boolean alphaFirst = false;
+        int i = offset;
+
+        while (i < end && isWhitespace(input.charAt(i))) {
+            i++;
+        }
+
+        if (i < end && input.charAt(i) == '#') {
+            i++;
+        } else if (i + 1 < end && input.charAt(i) == '0' && (input.charAt(i + 1) == 'x' || input.charAt(i + 1) == 'X')) {
+            alphaFirst = true;
+            i += 2;
+        }
+
+        long value = 0;
+        int digits = 0;
+
+        for (; i < end; i++) {
+            final char c = input.charAt(i);
+            final int digit = hexDigit(c);
+
+            if (digit >= 0 && digits < 8) {
+                value = (value << 4) | digit;
+                digits++;
+            } else if (!isWhitespace(c)) {
+                return ERROR_SYNTAX;
+            }
+        }
+
+        if (digits == 6) {
+            return 0xFF000000L | value;
+        } else if (digits != 8) {
+            return ERROR_SYNTAX;
+        }
+
+        return alphaFirst ? value : (value >>> 8) | (value & 0xFF) << 24;
+    }
+
+    /**
+     * Detects the color space of the input and parses it with the matching method above, see detect.
+     * Alpha of "rgba(...)" and "hsla(...)" is checked and dropped. Unlike parseHEX, 8 hex digits after "#" are
+     * CSS's #RRGGBBAA, like in parseHEXA.
+     */
+    public static int parseAny(CharSequence input) {
+        return parseAny(input, 0, input.length());
+    }
+
+    public static int parseAny(char[] input, int offset, int length) {
+        return parseAny(view(input), offset, length);
+    }
+
+    public static int parseAny(CharSequence input, int offset, int length) {
+        final int end = end(input, offset, length);
+        final long detected = classify(input, offset, end);
+
+        if (detected == FIELD_FAILED) {
+            return ERROR_SYNTAX;
+        }
+
+        final int from = stop(detected);
+
+        if ((value(detected) & WITH_ALPHA) != 0) {
+            final long argb = SPACES[value(detected) & ~WITH_ALPHA] == ColorSpace.RGB
+                    ? parseRGBA(input, from, end - from)
+                    : parseHSLA(input, from, end - from);
+
+            return isError(argb) ? (int) argb : (int) argb & 0xFFFFFF;
+        }
+
+        return switch (SPACES[value(detected)]) {
+            case RGB -> parseRGB(input, from, end - from);
+            case HEX -> parseHexOrName(input, from, end, true);
+            case DEC -> parseDEC(input, from, end - from);
+            case HSB_HSV -> parseHSBHSV(input, from, end - from);
+            case HSL -> parseHSL(input, from, end - from);
+            case CMYK -> parseCMYK(input, from, end - from);
+        };
+    }
+
+    public static ColorSpace detect(CharSequence input) {
+        return detect(input, 0, input.length());
+    }
+
+    /**
+     * Guesses the color space from the shape of the input in a single scan, without parsing any numbers.
+     * Returns null if the input fits none of them. In order:
+     * <ul>
+     *     <li>A function name "rgb", "rgba", "hsb", "hsv", "hsl", "hsla" or "cmyk" (any case) before the opening
+     *     bracket decides. rgba and hsla are RGB and HSL with an optional alpha field.</li>
+     *     <li>"#" or "0x" is HEX.</li>
+     *     <li>Four fields are CMYK.</li>
+     *     <li>Three fields are HSL if there is a %, ° or decimal point, RGB otherwise. Use "hsb(...)" for HSB/HSV.</li>
+     *     <li>A single field is HEX if it contains letters (hex digits or a color name), DEC otherwise.</li>
+     * </ul>
+     */
+    public static ColorSpace detect(CharSequence input, int offset, int length) {
+        final long detected = classify(input, offset, end(input, offset, length));
+
+        return detected == FIELD_FAILED ? null : SPACES[value(detected) & ~WITH_ALPHA];
+    }
+
+    /**
+     * parseHEX, or with css set the variant of parseAny that reads 8 digits after a leading "#" as RRGGBBAA.
+     */
+    private static int parseHexOrName(CharSequence input, int offset, int end, boolean css) {
+        final int result = parseHexDigits(input, offset, end, css);
+
+        return result == ERROR_SYNTAX ? NamedColors.lookup(input, offset, end - offset) : result;
+    }
+
+    private static int parseHexDigits(CharSequence input, int offset, int end, boolean css) {
+        boolean alphaLast = false;
+        int i = offset;
+
+        while (i < end && isWhitespace(input.charAt(i))) {
+            i++;
+        }
+
+        if (css && i < end && input.charAt(i) == '#') {
+            alphaLast = true;
+        }
+
+        while (i < end) {
+            final char c = input.charAt(i);
+
+            if (c == '#' || isWhitespace(c)) {
+                i++;
+            } else if (c == '0' && i + 1 < end && (input.charAt(i + 1) == 'x' || input.charAt(i + 1) == 'X')) {
+                i += 2;
+            } else {
+                break;
+            }
+        }
+
+        long value = 0;
+        int digits = 0;
+
+        for (; i < end; i++) {
+            final char c = input.charAt(i);
+            final int digit = hexDigit(c);
+
+            if (digit >= 0) {
+                value = (value << 4) | digit;
+                digits++;
+
+                if (value > 0xFFFFFFFFL) {
+                    return ERROR_RANGE;
+                }
+            } else if (!isWhitespace(c)) {
+                return ERROR_SYNTAX;
+            }
+        }
+
+        if (digits == 0) {
+            return ERROR_SYNTAX;
+        }
+
+        return digits == 8 && alphaLast ? (int) (value >>> 8) : (int) value & 0xFFFFFF;
+    }
+
+    /**
+     * The ordinal of the detected color space (or WITH_ALPHA for rgba and hsla), and where its parser should start
+     * (after a function name) as stop.
+     */
+    private static long classify(CharSequence input, int offset, int end) {
+        int nameStart = offset;
+
+        while (nameStart < end && isWhitespace(input.charAt(nameStart))) {
+            nameStart++;
+        }
+
+        int nameEnd = nameStart;
+
+        while (nameEnd < end && isLetter(input.charAt(nameEnd))) {
+            nameEnd++;
+        }
+
+        int bracket = nameEnd;
+
+        while (bracket < end && isWhitespace(input.charAt(bracket))) {
+            bracket++;
+        }
+
+        if (nameEnd > nameStart && bracket < end && input.charAt(bracket) == '(') {
+            final int named = named(input, nameStart, nameEnd);
+
+            if (named < 0) {
+                return FIELD_FAILED;
+            }
+
+            return field(bracket, FUNCTION_SPACES[named].ordinal() | (FUNCTION_ALPHA[named] ? WITH_ALPHA : 0));
+        }
+
+        int commas = 0;
+        boolean hexPrefix = false;
+        boolean letters = false;
+        boolean decimalMarks = false;
+
+        for (int i = offset; i < end; i++) {
+            final char c = input.charAt(i);
+
+            switch (c) {
+                case ',' -> commas++;
+                case '#' -> hexPrefix = true;
+                case 'x', 'X' -> hexPrefix |= i > offset && input.charAt(i - 1) == '0';
+                case '%', '°', '.' -> decimalMarks = true;
+                default -> letters |= isLetter(c);
+            }
+        }
+
+        final ColorSpace space;
+
+        if (hexPrefix) {
+            space = ColorSpace.HEX;
+        } else if (commas == 3) {
+            space = ColorSpace.CMYK;
+        } else if (commas == 2) {
+            space = decimalMarks ? ColorSpace.HSL : ColorSpace.RGB;
+        } else if (commas == 0) {
+            space = letters ? ColorSpace.HEX : ColorSpace.DEC;
+        } else {
+            return FIELD_FAILED;
+        }
+
+        return field(offset, space.ordinal());
+    }
+
+    /**
+     * Case-insensitive lookup of a function name, its index in FUNCTION_NAMES or -1 if unknown.
+     */
+    private static int named(CharSequence input, int from, int to) {
+        for (int i = 0; i < FUNCTION_NAMES.length; i++) {
+            final String name = FUNCTION_NAMES[i];
+
+            if (name.length() != to - from) {
+                continue;
+            }
+
+            int j = 0;
+
+            while (j < name.length() && Character.toLowerCase(input.charAt(from + j)) == name.charAt(j)) {
+                j++;
+            }
+
+            if (j == name.length()) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Scans an optionally signed integer up to the next comma or the end.
+     */
+    private static long intField(CharSequence input, int from, int end, int ignored) {
+        if (from < 0) {
+            return FIELD_FAILED;
+        }
+
+        boolean negative = false;
+        boolean signed = false;
+        long value = 0;
+        int digits = 0;
+        int i = from;
+
+        for (; i < end; i++) {
+            final char c = input.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits++;
+
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    return FIELD_FAILED;
+                }
+            } else if ((c == '-' || c == '+') && !signed && digits == 0) {
+                negative = c == '-';
+                signed = true;
+            } else if (c == ',') {
+                break;
+            } else if (!isIgnored(c, ignored)) {
+                return FIELD_FAILED;
+            }
+        }
+
+        if (digits == 0 || (!negative && value > Integer.MAX_VALUE)) {
+            return FIELD_FAILED;
+        }
+
+        return field(i, (int) (negative ? -value : value));
+    }
+
+    /**
+     * Scans an optionally signed decimal with optional fraction and exponent up to the next comma or the end.
+     */
+    private static long floatField(CharSequence input, int from, int end, int ignored) {
+        if (from < 0) {
+            return FIELD_FAILED;
+        }
+
+        boolean negative = false;
+        boolean signed = false;
+        boolean point = false;
+        long mantissa = 0;
+        int mantissaDigits = 0;
+        int digits = 0;
+        int exponent = 0;
+        int i = from;
+
+        for (; i < end; i++) {
+            final char c = input.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                digits++;
+
+                // Only the first 18 significant digits fit into the mantissa, the rest only shift the exponent.
+                if (mantissaDigits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    mantissaDigits += mantissa != 0 ? 1 : 0;
+                    exponent -= point ? 1 : 0;
+                } else if (!point) {
+                    exponent++;
+                }
+            } else if ((c == '-' || c == '+') && !signed && digits == 0 && !point) {
+                negative = c == '-';
+                signed = true;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else if ((c == 'e' || c == 'E') && digits > 0) {
+                final long exponentField = intField(input, i + 1, end, ignored);
+
+                if (exponentField == FIELD_FAILED) {
+                    return FIELD_FAILED;
+                }
+
+                exponent = (int) Math.max(-1000, Math.min(1000, (long) exponent + value(exponentField)));
+                i = stop(exponentField);
+                break;
+            } else if (c == ',') {
+                break;
+            } else if (!isIgnored(c, ignored)) {
+                return FIELD_FAILED;
+            }
+        }
+
+        if (digits == 0) {
+            return FIELD_FAILED;
+        }
+
+        final float value = toFloat(mantissa, exponent);
+
+        return field(i, Float.floatToRawIntBits(negative ? -value : value));
+    }
+
+    /**
+     * Exact for all mantissas below 2^53 and exponents up to 22, which covers everything a person types.
+     */
+    private static float toFloat(long mantissa, int exponent) {
+        if (mantissa == 0) {
+            return 0f;
+        } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            return (float) (mantissa * POWERS_OF_TEN[exponent]);
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            return (float) (mantissa / POWERS_OF_TEN[-exponent]);
+        } else {
+            return (float) (mantissa * Math.pow(10, exponent));
+        }
+    }
+
+    /**
+     * Helper methods for fields and characters.
+     */
+    private static long field(int stop, int value) {
+        return ((long) stop << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    private static int stop(long field) {
+        return (int) (field >>> 32);
+    }
+
+    private static int value(long field) {
+        return (int) field;
+    }
+
+    private static float floatValue(long field) {
+        return Float.intBitsToFloat((int) field);
+    }
+
+    /**
+     * Index after the comma that ended the previous field, or -1 if there is no further field.
+     */
+    private static int nextField(long previous, int end) {
+        if (previous == FIELD_FAILED || stop(previous) >= end) {
+            return -1;
+        }
+
+        return stop(previous) + 1;
+    }
+
+    private static int end(CharSequence input, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > input.length()) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + input.length());
+        }
+
+        return offset + length;
+    }
+
+    /**
+     * Alpha (0 to 255) from the field after the previous one, 255 if there is none, ERROR_SYNTAX or ERROR_RANGE.
+     */
+    private static int alphaField(CharSequence input, long previous, int end) {
+        if (previous == FIELD_FAILED) {
+            return ERROR_SYNTAX;
+        } else if (stop(previous) == end) {
+            return 0xFF;
+        }
+
+        final long alpha = floatField(input, nextField(previous, end), end, 0);
+
+        if (alpha == FIELD_FAILED || stop(alpha) != end) {
+            return ERROR_SYNTAX;
+        }
+
+        final float value = floatValue(alpha);
+
+        return value >= 0f && value <= 1f ? Math.round(value * 255f) : ERROR_RANGE;
+    }
+
+    private static long withAlpha(int rgb, int alpha) {
+        if (rgb == ColorEngine.OUT_OF_RANGE || alpha == ERROR_RANGE) {
+            return ERROR_RANGE;
+        }
+
+        return (long) alpha << 24 | rgb;
+    }
+
+    private static int orRangeError(int rgb) {
+        return rgb == ColorEngine.OUT_OF_RANGE ? ERROR_RANGE : rgb;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+
+        return -1;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isIgnored(char c, int ignored) {
+        return switch (c) {
+            case '(', ')', ' ', '\t' -> true;
+            case '%' -> (ignored & IGNORE_PERCENT) != 0;
+            case '°' -> (ignored & IGNORE_DEGREE) != 0;
+            default -> false;
+        };
+    }
+
+    private static CharSequence view(char[] input) {
+        final CharArrayView view = VIEWS.get();
+        view.chars = input;
+
+        return view;
+    }
+
+    /**
+     * Reusable CharSequence over a char array.
+     */
+    private static final class CharArrayView implements CharSequence {
+        private char[] chars;
+
+        @Override
+        public int length() {
+            return chars.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars);
+        }
+    }
+}
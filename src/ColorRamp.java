@@ -0,0 +1,282 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gradients through any number of color stops, sampled into int[] buffers of packed 0xRRGGBB colors.
+ * <br>
+ * <br>
+ * The stops are converted into the interpolation space once, when the ramp is built. Hues are unwrapped then too,
+ * so each segment takes the short way around the color circle, and stops without a hue (greys) borrow the hue of
+ * their neighbor instead of fading through red. Sampling is just a lerp and one conversion back.
+ * <br>
+ * <br>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class ColorRamp {
+    /**
+     * Color spaces to interpolate in. OKLAB is perceptually uniform and keeps the brightness of a ramp even.
+     */
+    public enum Interpolation {
+        RGB,
+        HSL,
+        HSV,
+        OKLAB
+    }
+
+    private final Interpolation interpolation;
+    private final float[] positions;
+
+    /**
+     * Three components per stop, in the interpolation space: r, g, b / hue (degrees), s, l / hue (turns), s, v / L, a, b.
+     */
+    private final double[] components;
+
+    private final Map<Integer, LookupTable> tables = new ConcurrentHashMap<>();
+
+    private ColorRamp(Interpolation interpolation, int[] colors, float[] positions) {
+        this.interpolation = interpolation;
+        this.positions = positions;
+        this.components = new double[3 * colors.length];
+
+        final float[] hsx = new float[3];
+        final double[] lab = new double[3];
+
+        for (int i = 0; i < colors.length; i++) {
+            final int rgb = colors[i];
+
+            switch (interpolation) {
+                case RGB -> set(i, ColorEngine.red(rgb), ColorEngine.green(rgb), ColorEngine.blue(rgb));
+                case HSL -> set(i, ColorEngine.rgbToHsl(rgb, hsx));
+                case HSV -> set(i, ColorEngine.rgbToHsb(rgb, hsx));
+                case OKLAB -> set(i, PerceptualColor.rgbToOklab(rgb, lab)[0], lab[1], lab[2]);
+            }
+        }
+
+        if (interpolation == Interpolation.HSL || interpolation == Interpolation.HSV) {
+            unwrapHues(interpolation == Interpolation.HSL ? 360 : 1);
+        }
+    }
+
+    /**
+     * Ramp through the colors at equal distances, from the first one at 0 to the last one at 1.
+     */
+    public static ColorRamp of(Interpolation interpolation, int... colors) {
+        final float[] positions = new float[colors.length];
+
+        for (int i = 0; i < colors.length; i++) {
+            positions[i] = colors.length == 1 ? 0 : (float) i / (colors.length - 1);
+        }
+
+        return of(interpolation, colors, positions);
+    }
+
+    /**
+     * Ramp with a position in [0, 1] for every color, in ascending order. Before the first position the ramp
+     * shows the first color, after the last one the last color.
+     */
+    public static ColorRamp of(Interpolation interpolation, int[] colors, float[] positions) {
+        if (colors.length == 0 || colors.length != positions.length) {
+            throw new IllegalArgumentException("Need at least one color and exactly one position per color");
+        }
+
+        for (int i = 0; i < positions.length; i++) {
+            if (!(positions[i] >= 0 && positions[i] <= 1) || (i > 0 && positions[i] < positions[i - 1])) {
+                throw new IllegalArgumentException("Positions must ascend within [0, 1]: " + Arrays.toString(positions));
+            }
+        }
+
+        return new ColorRamp(interpolation, colors.clone(), positions.clone());
+    }
+
+    /**
+     * Steps from one color to another, both included.
+     */
+    public static int[] gradient(int from, int to, int steps, Interpolation interpolation) {
+        return of(interpolation, from, to).fill(new int[steps], 0, steps);
+    }
+
+    public Interpolation interpolation() {
+        return interpolation;
+    }
+
+    /**
+     * The color at t in [0, 1], values outside are clamped.
+     */
+    public int at(double t) {
+        final int stops = positions.length;
+
+        if (!(t > positions[0]) || stops == 1) {
+            return color(0, 0, 0);
+        } else if (t >= positions[stops - 1]) {
+            return color(stops - 1, stops - 1, 0);
+        }
+
+        int segment = 0;
+
+        while (t >= positions[segment + 1]) {
+            segment++;
+        }
+
+        final double width = positions[segment + 1] - positions[segment];
+
+        return color(segment, segment + 1, (t - positions[segment]) / width);
+    }
+
+    /**
+     * Writes the given number of evenly spaced samples, from t = 0 to t = 1, into out starting at offset.
+     */
+    public int[] fill(int[] out, int offset, int steps) {
+        if (offset < 0 || steps < 0 || offset + steps > out.length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + steps + ") out of bounds for length " + out.length);
+        }
+
+        for (int i = 0; i < steps; i++) {
+            out[offset + i] = at(steps == 1 ? 0 : (double) i / (steps - 1));
+        }
+
+        return out;
+    }
+
+    /**
+     * The ramp sampled into a table of the given size, e.g. 256 or 1024. Tables are built once per size and cached.
+     */
+    public LookupTable lookupTable(int size) {
+        if (size < 2) {
+            throw new IllegalArgumentException("A lookup table needs at least 2 entries, not " + size);
+        }
+
+        return tables.computeIfAbsent(size, s -> new LookupTable(fill(new int[s], 0, s)));
+    }
+
+    /**
+     * A sampled ramp for coloring lots of values, e.g. the pixels of a heatmap, with an array lookup each.
+     */
+    public static final class LookupTable {
+        private final int[] colors;
+        private final float scale;
+
+        private LookupTable(int[] colors) {
+            this.colors = colors;
+            this.scale = colors.length - 1;
+        }
+
+        public int size() {
+            return colors.length;
+        }
+
+        /**
+         * The entry closest to t in [0, 1], values outside (and NaN) are clamped.
+         */
+        public int color(float t) {
+            return colors[index(t)];
+        }
+
+        /**
+         * Maps every value from [min, max] onto the table, in parallel for large arrays.
+         */
+        public int[] colorize(float[] values, float min, float max, int[] out) {
+            if (out.length < values.length) {
+                throw new IllegalArgumentException("Output of length " + out.length + " is too short for " + values.length + " values");
+            }
+
+            final float toUnit = max > min ? 1f / (max - min) : 0f;
+
+            ColorBulk.forRange(values.length, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    out[i] = colors[index((values[i] - min) * toUnit)];
+                }
+            });
+
+            return out;
+        }
+
+        /**
+         * Copy of all entries.
+         */
+        public int[] colors() {
+            return colors.clone();
+        }
+
+        private int index(float t) {
+            final int index = (int) (t * scale + 0.5f);
+
+            return Math.max(0, Math.min(colors.length - 1, index));
+        }
+    }
+
+    /**
+     * Helper methods for the stops.
+     */
+    private void set(int stop, double first, double second, double third) {
+        components[3 * stop] = first;
+        components[3 * stop + 1] = second;
+        components[3 * stop + 2] = third;
+    }
+
+    private void set(int stop, float[] values) {
+        set(stop, values[0], values[1], values[2]);
+    }
+
+    /**
+     * Gives greys the hue of the closest colorful stop before them (or after them, for leading greys), then shifts
+     * every hue by whole turns so that it lies within half a turn of the previous one.
+     */
+    private void unwrapHues(double turn) {
+        final int stops = positions.length;
+        int colorful = -1;
+
+        for (int i = 0; i < stops; i++) {
+            if (components[3 * i + 1] > 0) {
+                colorful = i;
+            } else if (colorful >= 0) {
+                components[3 * i] = components[3 * colorful];
+            }
+        }
+
+        int first = 0;
+
+        while (first < stops && components[3 * first + 1] <= 0) {
+            first++;
+        }
+
+        for (int i = 0; i < first && first < stops; i++) {
+            components[3 * i] = components[3 * first];
+        }
+
+        for (int i = 1; i < stops; i++) {
+            final double previous = components[3 * (i - 1)];
+            double hue = components[3 * i];
+
+            while (hue - previous > turn / 2) {
+                hue -= turn;
+            }
+
+            while (previous - hue > turn / 2) {
+                hue += turn;
+            }
+
+            components[3 * i] = hue;
+        }
+    }
+
+    /**
+     * Mix of two stops, fraction 0 being the first one.
+     */
+    private int color(int first, int second, double fraction) {
+        final double c0 = lerp(components[3 * first], components[3 * second], fraction);
+        final double c1 = lerp(components[3 * first + 1], components[3 * second + 1], fraction);
+        final double c2 = lerp(components[3 * first + 2], components[3 * second + 2], fraction);
+
+        return switch (interpolation) {
+            case RGB -> ColorEngine.rgb((int) Math.round(c0), (int) Math.round(c1), (int) Math.round(c2));
+            case HSL -> ColorEngine.hslToRgb(ColorEngine.cyclicPeriodicity((float) c0), (float) c1, (float) c2);
+            case HSV -> ColorEngine.hsbToRgb((float) c0, (float) c1, (float) c2);
+            case OKLAB -> PerceptualColor.oklabToClipped(c0, c1, c2);
+        };
+    }
+
+    private static double lerp(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+}
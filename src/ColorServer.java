@@ -0,0 +1,516 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small embedded HTTP service for the conversions, built on the JDK's com.sun.net.httpserver and started with
+ * "ColorCalc serve". Every request runs on its own virtual thread, so slow clients never hold up the others.
+ * <br>
+ * <br>
+ * GET  /convert?from=hsl&amp;to=rgb&amp;color=(120,%2050,%2050) converts a single color.<br>
+ * POST /convert?from=hsl&amp;to=rgb converts a batch, either one color per line or a JSON array of strings.
+ * The answer has the same shape as the request; colors that can't be read come back as empty lines or null.<br>
+ * GET  /metrics lists request and color counts, the request rate, latency percentiles and ColorCache statistics as plain text.
+ * <br>
+ * <br>
+ * The optional style parameter picks the notation just like "ColorCalc convert --style".
+ */
+public final class ColorServer {
+    private static final int MAX_BODY_BYTES = 16 << 20;
+
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_BAD_REQUEST = 400;
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+    private static final int STATUS_TOO_LARGE = 413;
+
+    private static final String TEXT = "text/plain; charset=utf-8";
+    private static final String JSON = "application/json; charset=utf-8";
+
+    /**
+     * Latencies are counted in buckets of powers of two nanoseconds, so percentiles are upper bounds within a factor of two.
+     */
+    private static final int LATENCY_BUCKETS = 40;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ColorCache cache = ColorCache.shared();
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder colors = new LongAdder();
+    private final LongAdder failedColors = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS);
+
+    private ColorServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Binds to the address and starts serving in the background. Port 0 picks a free port, see {@link #port()}.
+     */
+    public static ColorServer start(String host, int port) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        final ColorServer colorServer = new ColorServer(server, executor);
+
+        server.createContext("/convert", colorServer::convert);
+        server.createContext("/metrics", colorServer::metrics);
+        server.setExecutor(executor);
+        server.start();
+
+        return colorServer;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, gives running ones up to the delay to finish and then shuts down.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.close();
+    }
+
+    /**
+     * Request handlers.
+     */
+    private void convert(HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        boolean failed = true;
+
+        try (exchange) {
+            final String method = exchange.getRequestMethod();
+            final Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+
+            final ColorSpace from;
+            final ColorSpace to;
+            final int style;
+
+            try {
+                from = ColorSpace.fromName(required(query, "from"));
+                to = ColorSpace.fromName(required(query, "to"));
+                style = style(query.get("style"), to);
+            } catch (IllegalArgumentException ex) {
+                send(exchange, STATUS_BAD_REQUEST, TEXT, ex.getMessage());
+                return;
+            }
+
+            if (method.equals("GET")) {
+                final String color = query.get("color");
+
+                if (color == null) {
+                    send(exchange, STATUS_BAD_REQUEST, TEXT, "Missing parameter color");
+                    return;
+                }
+
+                final int rgb = cache.parse(from, color);
+                colors.increment();
+
+                if (ColorParser.isError(rgb)) {
+                    failedColors.increment();
+                    send(exchange, STATUS_BAD_REQUEST, TEXT, "Not a valid " + from.label() + " color: " + color);
+                    return;
+                }
+
+                send(exchange, STATUS_OK, TEXT, cache.format(to, rgb)[style]);
+            } else if (method.equals("POST")) {
+                final String body = readBody(exchange.getRequestBody());
+
+                if (body == null) {
+                    send(exchange, STATUS_TOO_LARGE, TEXT, "Request bodies are limited to " + MAX_BODY_BYTES + " bytes");
+                    return;
+                }
+
+                if (isJsonArray(body)) {
+                    final List<String> inputs = parseJsonArray(body);
+
+                    if (inputs == null) {
+                        send(exchange, STATUS_BAD_REQUEST, TEXT, "Malformed JSON array of strings");
+                        return;
+                    }
+
+                    send(exchange, STATUS_OK, JSON, convertJson(inputs, from, to, style));
+                } else {
+                    send(exchange, STATUS_OK, TEXT, convertLines(body, from, to, style));
+                }
+            } else {
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                send(exchange, STATUS_METHOD_NOT_ALLOWED, TEXT, "Use GET for single colors and POST for batches");
+                return;
+            }
+
+            failed = false;
+        } finally {
+            record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final long total = requests.sum();
+            final double seconds = (System.nanoTime() - startNanos) / 1e9;
+            final StringBuilder out = new StringBuilder(512);
+
+            line(out, "requests", total);
+            line(out, "requests_failed", failedRequests.sum());
+            line(out, "requests_per_second", total / seconds);
+            line(out, "colors", colors.sum());
+            line(out, "colors_failed", failedColors.sum());
+            line(out, "latency_mean_us", total == 0 ? 0 : latencyNanos.sum() / 1e3 / total);
+            line(out, "latency_p50_us", percentile(0.5) / 1e3);
+            line(out, "latency_p90_us", percentile(0.9) / 1e3);
+            line(out, "latency_p99_us", percentile(0.99) / 1e3);
+            line(out, "latency_p999_us", percentile(0.999) / 1e3);
+            cacheLines(out, "cache_format", cache.formatStats());
+            cacheLines(out, "cache_parse", cache.parseStats());
+            line(out, "uptime_seconds", seconds);
+
+            send(exchange, STATUS_OK, TEXT, out.toString());
+        }
+    }
+
+    /**
+     * Methods that convert a batch. Popular colors come straight out of the shared ColorCache.
+     */
+    private String convertLines(String body, ColorSpace from, ColorSpace to, int style) {
+        final StringBuilder out = new StringBuilder(body.length() + 16);
+        int start = 0;
+        int count = 0;
+        int failed = 0;
+
+        while (start < body.length()) {
+            int end = body.indexOf('\n', start);
+
+            if (end < 0) {
+                end = body.length();
+            }
+
+            final int next = end + 1;
+
+            if (end > start && body.charAt(end - 1) == '\r') {
+                end--;
+            }
+
+            final int rgb = cache.parse(from, body.substring(start, end));
+            count++;
+
+            if (ColorParser.isError(rgb)) {
+                failed++;
+            } else {
+                out.append(cache.format(to, rgb)[style]);
+            }
+
+            out.append('\n');
+            start = next;
+        }
+
+        colors.add(count);
+        failedColors.add(failed);
+
+        return out.toString();
+    }
+
+    private String convertJson(List<String> inputs, ColorSpace from, ColorSpace to, int style) {
+        final StringBuilder out = new StringBuilder(inputs.size() * 32 + 2);
+        int failed = 0;
+
+        out.append('[');
+
+        for (int i = 0; i < inputs.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+
+            final int rgb = cache.parse(from, inputs.get(i));
+
+            if (ColorParser.isError(rgb)) {
+                failed++;
+                out.append("null");
+            } else {
+                out.append('"');
+                final int start = out.length();
+                out.append(cache.format(to, rgb)[style]);
+                escapeJson(out, start);
+                out.append('"');
+            }
+        }
+
+        out.append(']');
+
+        colors.add(inputs.size());
+        failedColors.add(failed);
+
+        return out.toString();
+    }
+
+    /**
+     * Helper methods for the counters.
+     */
+    private void record(long nanos, boolean failed) {
+        requests.increment();
+        latencyNanos.add(nanos);
+        latencyBuckets.incrementAndGet(Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(1, nanos))));
+
+        if (failed) {
+            failedRequests.increment();
+        }
+    }
+
+    /**
+     * Upper bound of the bucket that holds the given share of all latencies.
+     */
+    private long percentile(double quantile) {
+        long total = 0;
+
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            total += latencyBuckets.get(i);
+        }
+
+        final long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            seen += latencyBuckets.get(i);
+
+            if (seen >= rank && seen > 0) {
+                return 2L << i;
+            }
+        }
+
+        return 0;
+    }
+
+    private static void cacheLines(StringBuilder out, String prefix, ColorCache.Stats stats) {
+        line(out, prefix + "_hits", stats.hits());
+        line(out, prefix + "_misses", stats.misses());
+        line(out, prefix + "_evictions", stats.evictions());
+        line(out, prefix + "_size", stats.size());
+        line(out, prefix + "_hit_rate", stats.hitRate());
+    }
+
+    private static void line(StringBuilder out, String name, long value) {
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void line(StringBuilder out, String name, double value) {
+        out.append(name).append(' ').append(String.format(Locale.US, "%.3f", value)).append('\n');
+    }
+
+    /**
+     * Helper methods for requests and responses.
+     */
+    private static Map<String, String> query(String rawQuery) {
+        final Map<String, String> parameters = new HashMap<>();
+
+        if (rawQuery == null) {
+            return parameters;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            final int equals = pair.indexOf('=');
+
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+
+        return parameters;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        final String value = query.get(name);
+
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+
+        return value;
+    }
+
+    private static int style(String value, ColorSpace space) {
+        if (value == null) {
+            return space.defaultStyle();
+        }
+
+        final int style;
+
+        try {
+            style = Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Not a style: " + value);
+        }
+
+        if (style < 0 || style >= space.styles()) {
+            throw new IllegalArgumentException(space.label() + " only has styles 0 to " + (space.styles() - 1));
+        }
+
+        return style;
+    }
+
+    /**
+     * Returns null if the body is larger than MAX_BODY_BYTES.
+     */
+    private static String readBody(InputStream in) throws IOException {
+        final byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+
+        if (bytes.length > MAX_BODY_BYTES) {
+            return null;
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Minimal JSON support, just enough for arrays of strings.
+     */
+    private static boolean isJsonArray(String body) {
+        for (int i = 0; i < body.length(); i++) {
+            final char c = body.charAt(i);
+
+            if (!isJsonWhitespace(c)) {
+                return c == '[';
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns null if the body is not a JSON array of strings.
+     */
+    private static List<String> parseJsonArray(String body) {
+        final List<String> values = new ArrayList<>();
+        final StringBuilder value = new StringBuilder();
+        int i = skipWhitespace(body, body.indexOf('[') + 1);
+
+        if (i < body.length() && body.charAt(i) == ']') {
+            return skipWhitespace(body, i + 1) == body.length() ? values : null;
+        }
+
+        while (i < body.length() && body.charAt(i) == '"') {
+            value.setLength(0);
+            i++;
+
+            while (i < body.length() && body.charAt(i) != '"') {
+                char c = body.charAt(i++);
+
+                if (c == '\\') {
+                    if (i == body.length()) {
+                        return null;
+                    }
+
+                    switch (body.charAt(i++)) {
+                        case '"' -> c = '"';
+                        case '\\' -> c = '\\';
+                        case '/' -> c = '/';
+                        case 'b' -> c = '\b';
+                        case 'f' -> c = '\f';
+                        case 'n' -> c = '\n';
+                        case 'r' -> c = '\r';
+                        case 't' -> c = '\t';
+                        case 'u' -> {
+                            if (i + 4 > body.length()) {
+                                return null;
+                            }
+
+                            try {
+                                c = (char) Integer.parseInt(body, i, i + 4, 16);
+                            } catch (NumberFormatException ex) {
+                                return null;
+                            }
+
+                            i += 4;
+                        }
+                        default -> {
+                            return null;
+                        }
+                    }
+                }
+
+                value.append(c);
+            }
+
+            if (i == body.length()) {
+                return null;
+            }
+
+            values.add(value.toString());
+            i = skipWhitespace(body, i + 1);
+
+            if (i < body.length() && body.charAt(i) == ']') {
+                return skipWhitespace(body, i + 1) == body.length() ? values : null;
+            }
+
+            if (i == body.length() || body.charAt(i) != ',') {
+                return null;
+            }
+
+            i = skipWhitespace(body, i + 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Escapes everything appended since the start index. The formatters never write quotes or control characters,
+     * this only keeps the output valid if they ever do.
+     */
+    private static void escapeJson(StringBuilder out, int start) {
+        for (int i = start; i < out.length(); i++) {
+            final char c = out.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                out.insert(i++, '\\');
+            } else if (c < 0x20) {
+                out.replace(i, i + 1, String.format(Locale.ROOT, "\\u%04x", (int) c));
+                i += 5;
+            }
+        }
+    }
+
+    private static int skipWhitespace(String body, int from) {
+        int i = from;
+
+        while (i < body.length() && isJsonWhitespace(body.charAt(i))) {
+            i++;
+        }
+
+        return i;
+    }
+
+    private static boolean isJsonWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+}
@@ -0,0 +1,299 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Any subset of the 2^24 packed colors as a bit set of 2 MB, one bit per color. Adding tens of millions of colors
+ * (e.g. to deduplicate palettes) costs no extra memory, and a HashSet of the same size would take gigabytes.
+ * <br>
+ * <br>
+ * Union, intersection, difference and cardinality work on whole 64 bit words, in parallel on the common pool.
+ * Bulk adds set their bits atomically, so they run in parallel too. Iteration is in ascending order.
+ * <br>
+ * <br>
+ * Single adds and removes are not thread-safe, like in java.util.BitSet.
+ */
+public final class ColorSet {
+    public static final int COLORS = 1 << 24;
+
+    private static final int WORDS = COLORS / Long.SIZE;
+    private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Lines read at once by the bulk loaders, parsed in parallel.
+     */
+    private static final int LINES_PER_CHUNK = 1 << 16;
+
+    private final long[] words;
+
+    public ColorSet() {
+        this(new long[WORDS]);
+    }
+
+    private ColorSet(long[] words) {
+        this.words = words;
+    }
+
+    public static ColorSet of(int... colors) {
+        return new ColorSet().addAll(colors);
+    }
+
+    /**
+     * Methods for single colors. Alpha bits are ignored.
+     * <br>
+     * <br>
+     * Whether the color was new.
+     */
+    public boolean add(int rgb) {
+        final int color = rgb & 0xFFFFFF;
+        final long bit = 1L << color;
+        final long word = words[color >>> 6];
+
+        words[color >>> 6] = word | bit;
+
+        return (word & bit) == 0;
+    }
+
+    /**
+     * Whether the color was in the set.
+     */
+    public boolean remove(int rgb) {
+        final int color = rgb & 0xFFFFFF;
+        final long bit = 1L << color;
+        final long word = words[color >>> 6];
+
+        words[color >>> 6] = word & ~bit;
+
+        return (word & bit) != 0;
+    }
+
+    public boolean contains(int rgb) {
+        final int color = rgb & 0xFFFFFF;
+
+        return (words[color >>> 6] & (1L << color)) != 0;
+    }
+
+    /**
+     * Methods that add many colors.
+     * <br>
+     * <br>
+     * Adds packed colors, alpha bits are ignored.
+     */
+    public ColorSet addAll(int[] colors) {
+        ColorBulk.forRange(colors.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                set(colors[i]);
+            }
+        });
+
+        return this;
+    }
+
+    /**
+     * Parses every input like ColorBulk.parse and adds the colors. Returns the number of inputs that can't be read.
+     */
+    public int addAll(List<? extends CharSequence> inputs, ColorSpace from) {
+        final int[] parsed = new int[inputs.size()];
+        final int errors = ColorBulk.parse(inputs, from, parsed);
+
+        addParsed(parsed, parsed.length);
+
+        return errors;
+    }
+
+    /**
+     * Same for every line, blank ones are skipped. Reads in chunks, so the lines never need to fit into memory.
+     */
+    public long addAll(BufferedReader lines, ColorSpace from) throws IOException {
+        return parseLines(lines, from, this::addParsed);
+    }
+
+    /**
+     * Methods that combine sets in place. They return this set.
+     */
+    public ColorSet union(ColorSet other) {
+        ColorBulk.forRange(WORDS, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                words[i] |= other.words[i];
+            }
+        });
+
+        return this;
+    }
+
+    public ColorSet intersect(ColorSet other) {
+        ColorBulk.forRange(WORDS, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                words[i] &= other.words[i];
+            }
+        });
+
+        return this;
+    }
+
+    /**
+     * Removes all colors of the other set.
+     */
+    public ColorSet subtract(ColorSet other) {
+        ColorBulk.forRange(WORDS, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                words[i] &= ~other.words[i];
+            }
+        });
+
+        return this;
+    }
+
+    public ColorSet copy() {
+        return new ColorSet(words.clone());
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * Methods that query the whole set.
+     * <br>
+     * <br>
+     * Number of colors in the set.
+     */
+    public int cardinality() {
+        final LongAdder count = new LongAdder();
+
+        ColorBulk.forRange(WORDS, (from, to) -> {
+            int rangeCount = 0;
+
+            for (int i = from; i < to; i++) {
+                rangeCount += Long.bitCount(words[i]);
+            }
+
+            count.add(rangeCount);
+        });
+
+        return count.intValue();
+    }
+
+    public boolean isEmpty() {
+        return next(0) < 0;
+    }
+
+    /**
+     * The smallest color in the set that is not below the given one, -1 if there is none.
+     */
+    public int next(int from) {
+        if (from < 0 || from >= COLORS) {
+            return -1;
+        }
+
+        int index = from >>> 6;
+        long word = words[index] & (-1L << from);
+
+        while (word == 0) {
+            if (++index == WORDS) {
+                return -1;
+            }
+
+            word = words[index];
+        }
+
+        return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Calls the action for every color in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int index = 0; index < WORDS; index++) {
+            long word = words[index];
+
+            while (word != 0) {
+                action.accept(index * Long.SIZE + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * All colors in ascending order.
+     */
+    public int[] toArray() {
+        final int[] colors = new int[cardinality()];
+        final int[] size = new int[1];
+
+        forEach(rgb -> colors[size[0]++] = rgb);
+
+        return colors;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ColorSet set && Arrays.equals(words, set.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return "ColorSet[" + cardinality() + " colors]";
+    }
+
+    /**
+     * Helper methods for bulk loading.
+     * <br>
+     * <br>
+     * Sets the bit of the color atomically, so threads can add to the same word.
+     */
+    private void set(int rgb) {
+        final int color = rgb & 0xFFFFFF;
+
+        WORD.getAndBitwiseOr(words, color >>> 6, 1L << color);
+    }
+
+    private void addParsed(int[] parsed, int size) {
+        ColorBulk.forRange(size, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (!ColorParser.isError(parsed[i])) {
+                    set(parsed[i]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the non-blank lines in chunks, parses each chunk in parallel and hands the result (colors, or error codes
+     * for lines that can't be read) and its size to the consumer. Returns the number of lines that can't be read.
+     */
+    static long parseLines(BufferedReader reader, ColorSpace from, ObjIntConsumer<int[]> chunks) throws IOException {
+        final List<String> lines = new ArrayList<>(LINES_PER_CHUNK);
+        final int[] parsed = new int[LINES_PER_CHUNK];
+        long errors = 0;
+        String line;
+
+        do {
+            line = reader.readLine();
+
+            if (line != null && !line.isBlank()) {
+                lines.add(line);
+            }
+
+            if (lines.size() == LINES_PER_CHUNK || (line == null && !lines.isEmpty())) {
+                errors += ColorBulk.parse(lines, from, parsed);
+                chunks.accept(parsed, lines.size());
+                lines.clear();
+            }
+        } while (line != null);
+
+        return errors;
+    }
+}
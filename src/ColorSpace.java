@@ -0,0 +1,105 @@
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+
+/**
+ * All color spaces ColorCalc can read and write, working on packed 0xRRGGBB ints only.
+ * Nothing in here loads java.awt, so it can be used by the headless entry points.
+ */
+public enum ColorSpace {
+    RGB("RGB", 2, 1, ColorParser::parseRGB),
+    HEX("HEX", 3, 1, ColorParser::parseHEX),
+    DEC("DEC", 1, 0, ColorParser::parseDEC),
+    HSB_HSV("HSB/HSV", 3, 1, ColorParser::parseHSBHSV),
+    HSL("HSL", 3, 1, ColorParser::parseHSL),
+    CMYK("CMYK", 3, 1, ColorParser::parseCMYK);
+
+    private final String label;
+    private final int styles;
+    private final int defaultStyle;
+    private final ToIntFunction<CharSequence> parser;
+
+    ColorSpace(String label, int styles, int defaultStyle, ToIntFunction<CharSequence> parser) {
+        this.label = label;
+        this.styles = styles;
+        this.defaultStyle = defaultStyle;
+        this.parser = parser;
+    }
+
+    /**
+     * Name as shown to the user, e.g. "HSB/HSV".
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Number of notations, i.e. the length of the output of {@link #format(int)}.
+     */
+    public int styles() {
+        return styles;
+    }
+
+    /**
+     * Index of the plain tuple notation within the output of {@link #format(int)}.
+     */
+    public int defaultStyle() {
+        return defaultStyle;
+    }
+
+    /**
+     * Parses the input into a packed color. Throws on malformed input, just like the ColorCalc methods.
+     */
+    public int parse(CharSequence input) {
+        final int result = tryParse(input);
+
+        if (ColorParser.isError(result)) {
+            throw new IllegalArgumentException("Not a valid " + label + " color: " + input);
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the input into a packed color, or returns one of the ColorParser error codes.
+     */
+    public int tryParse(CharSequence input) {
+        if (!ConversionMetrics.ENABLED) {
+            return parser.applyAsInt(input);
+        }
+
+        final long start = System.nanoTime();
+        final int result = parser.applyAsInt(input);
+        ConversionMetrics.parsed(this, result, System.nanoTime() - start);
+
+        return result;
+    }
+
+    /**
+     * All notations of the packed color in this color space.
+     */
+    public String[] format(int rgb) {
+        return ColorFormatter.formatAll(this, rgb);
+    }
+
+    /**
+     * A single notation of the packed color, appended without any allocation.
+     */
+    public StringBuilder format(int rgb, int style, StringBuilder out) {
+        return ColorFormatter.append(this, style, rgb, out);
+    }
+
+    /**
+     * Lenient lookup for user input, e.g. "hsv", "HSB", "cmyk".
+     */
+    public static ColorSpace fromName(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "rgb" -> RGB;
+            case "hex" -> HEX;
+            case "dec" -> DEC;
+            case "hsb", "hsv", "hsb/hsv", "hsb_hsv" -> HSB_HSV;
+            case "hsl" -> HSL;
+            case "cmyk" -> CMYK;
+            default -> throw new IllegalArgumentException("Unknown color space: " + name);
+        };
+    }
+}
@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Optional lookup tables for the 24-bit RGB space. Each entry holds the already rounded values the
+ * HSB/HSV, HSL and CMYK formatters print, so a conversion becomes a single indexed load.
+ * <br>
+ * <br>
+ * The tables live off-heap (64 MB each), either in direct memory or memory-mapped from a cache file.
+ * They are enabled with {@link #enable()} / {@link #enable(Path)}, or at startup with the system property
+ * colorcalc.lut set to "memory" or to the path of the cache file.
+ * <br>
+ * <br>
+ * Entry layouts:
+ * HSB/HSV and HSL: hue (degrees) in bits 16-24, saturation in bits 8-15, brightness/lightness in bits 0-7, all in percent.
+ * CMYK: cyan, magenta, yellow and black key in hundredths, 7 bits each from bit 21 down to bit 0.
+ * Bits 28-31 flag (for the same order) that the percent notation rounds one higher than the decimal one.
+ */
+public final class ColorTable {
+    private static final int SIZE = 1 << 24;
+
+    private static final int MAGIC = 0x43434C54;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final long TABLE_BYTES = (long) SIZE * Integer.BYTES;
+    private static final long FILE_BYTES = HEADER_BYTES + 3 * TABLE_BYTES;
+
+    /**
+     * Null while lookup tables are disabled.
+     */
+    private static volatile Tables tables;
+
+    /**
+     * The system property is only looked at on the first lookup. Doing it in a static initializer would deadlock,
+     * because the fork-join workers filling the tables need this class to be initialized.
+     */
+    private static volatile boolean startupChecked = false;
+
+    /**
+     * Utility Class for the lookup tables.
+     */
+    private ColorTable() {}
+
+    /**
+     * Builds the tables in direct memory. Does nothing if they are already enabled.
+     */
+    public static synchronized void enable() {
+        if (tables == null) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect((int) (3 * TABLE_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+            fill(buffer);
+            tables = new Tables(buffer);
+        }
+    }
+
+    /**
+     * Memory-maps the tables from the cache file. Missing or outdated cache files are (re)built first.
+     */
+    public static synchronized void enable(Path cacheFile) {
+        if (tables != null) {
+            return;
+        }
+
+        try {
+            if (!isValidCache(cacheFile)) {
+                writeCache(cacheFile);
+            }
+
+            try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+                final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 3 * TABLE_BYTES);
+                tables = new Tables(mapped.order(ByteOrder.LITTLE_ENDIAN));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Switches back to calculating every conversion. Mapped memory is released once it gets garbage collected.
+     */
+    public static synchronized void disable() {
+        startupChecked = true;
+        tables = null;
+    }
+
+    public static boolean isEnabled() {
+        return currentTables() != null;
+    }
+
+    /**
+     * Lookups, falling back to the calculation while the tables are disabled.
+     */
+    public static int hsb(int rgb) {
+        final Tables current = currentTables();
+
+        return current != null ? current.hsb.get(rgb & 0xFFFFFF) : quantizeHSB(rgb);
+    }
+
+    public static int hsl(int rgb) {
+        final Tables current = currentTables();
+
+        return current != null ? current.hsl.get(rgb & 0xFFFFFF) : quantizeHSL(rgb);
+    }
+
+    public static int cmyk(int rgb) {
+        final Tables current = currentTables();
+
+        return current != null ? current.cmyk.get(rgb & 0xFFFFFF) : quantizeCMYK(rgb);
+    }
+
+    private static Tables currentTables() {
+        final Tables current = tables;
+
+        return current != null || startupChecked ? current : applyStartupSetting();
+    }
+
+    private static synchronized Tables applyStartupSetting() {
+        if (!startupChecked) {
+            startupChecked = true;
+            final String setting = System.getProperty("colorcalc.lut");
+
+            if (setting != null && !setting.isBlank()) {
+                if (setting.equals("memory")) {
+                    enable();
+                } else {
+                    enable(Path.of(setting));
+                }
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * Methods that calculate a single entry.
+     */
+    static int quantizeHSB(int rgb) {
+        final int hue = Math.round(ColorEngine.hsbHue(rgb) * 360f);
+        final int sat = Math.round(ColorEngine.hsbSaturation(rgb) * 100f);
+        final int brt = Math.round(ColorEngine.hsbBrightness(rgb) * 100f);
+
+        return (hue << 16) | (sat << 8) | brt;
+    }
+
+    static int quantizeHSL(int rgb) {
+        final float lgt = ColorEngine.hslLightness(rgb);
+        final int hue = Math.round(ColorEngine.hsbHue(rgb) * 360f);
+        final int sat = Math.round(ColorEngine.sInHSBtoHSL(ColorEngine.hsbBrightness(rgb), lgt) * 100f);
+
+        return (hue << 16) | (sat << 8) | Math.round(lgt * 100f);
+    }
+
+    static int quantizeCMYK(int rgb) {
+        final float blackKey = ColorEngine.cmykBlackKey(rgb);
+
+        return quantizeCMYK(ColorEngine.cmykComponent(ColorEngine.red(rgb), blackKey),
+                ColorEngine.cmykComponent(ColorEngine.green(rgb), blackKey),
+                ColorEngine.cmykComponent(ColorEngine.blue(rgb), blackKey),
+                blackKey);
+    }
+
+    /**
+     * Entry of any CMYK components in [0, 1], e.g. from a CmykProfile.
+     */
+    static int quantizeCMYK(float c, float m, float y, float k) {
+        return quantizeCMYKChannel(c, 3) | quantizeCMYKChannel(m, 2) | quantizeCMYKChannel(y, 1) | quantizeCMYKChannel(k, 0);
+    }
+
+    /**
+     * Rounds half up on the exact decimal value, which is what "%.2f" does. The product is exact in double
+     * because a float has only 24 significant bits.
+     */
+    private static int quantizeCMYKChannel(float value, int slot) {
+        final int hundredths = (int) Math.floor(value * 100d + 0.5d);
+        final int percent = Math.round(value * 100f);
+        final int roundsUp = percent != hundredths ? 1 : 0;
+
+        return (hundredths << (7 * slot)) | (roundsUp << (28 + slot));
+    }
+
+    /**
+     * Methods that unpack entries.
+     */
+    public static int hue(int entry) {
+        return entry >>> 16;
+    }
+
+    public static int saturation(int entry) {
+        return (entry >>> 8) & 0xFF;
+    }
+
+    /**
+     * Brightness/value for HSB/HSV entries, lightness for HSL entries.
+     */
+    public static int third(int entry) {
+        return entry & 0xFF;
+    }
+
+    /**
+     * CMYK channels from 0 (cyan) to 3 (black key), in hundredths as printed by "%.2f".
+     */
+    public static int cmykHundredths(int entry, int channel) {
+        return (entry >>> (7 * (3 - channel))) & 0x7F;
+    }
+
+    /**
+     * CMYK channels from 0 (cyan) to 3 (black key), in percent as printed by Math.round(value * 100f).
+     */
+    public static int cmykPercent(int entry, int channel) {
+        return cmykHundredths(entry, channel) + ((entry >>> (31 - channel)) & 1);
+    }
+
+    /**
+     * Helper methods for building and validating the tables.
+     */
+    private static void fill(ByteBuffer buffer) {
+        final Tables target = new Tables(buffer);
+
+        ColorBulk.forRange(SIZE, (from, to) -> {
+            for (int rgb = from; rgb < to; rgb++) {
+                target.hsb.put(rgb, quantizeHSB(rgb));
+                target.hsl.put(rgb, quantizeHSL(rgb));
+                target.cmyk.put(rgb, quantizeCMYK(rgb));
+            }
+        });
+    }
+
+    private static boolean isValidCache(Path cacheFile) throws IOException {
+        if (!Files.isRegularFile(cacheFile) || Files.size(cacheFile) != FILE_BYTES) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete.
+            }
+
+            return header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+        }
+    }
+
+    /**
+     * Writes the tables before the header, so an interrupted build never leaves a valid looking cache behind.
+     */
+    private static void writeCache(Path cacheFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_BYTES);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            fill(mapped.slice(HEADER_BYTES, (int) (3 * TABLE_BYTES)).order(ByteOrder.LITTLE_ENDIAN));
+            mapped.force();
+
+            mapped.putInt(0, MAGIC);
+            mapped.putInt(4, VERSION);
+            mapped.force();
+        }
+    }
+
+    /**
+     * Int views on the three consecutive tables of a buffer.
+     */
+    private static final class Tables {
+        private final IntBuffer hsb;
+        private final IntBuffer hsl;
+        private final IntBuffer cmyk;
+
+        private Tables(ByteBuffer buffer) {
+            final int tableBytes = (int) TABLE_BYTES;
+
+            this.hsb = buffer.slice(0, tableBytes).order(buffer.order()).asIntBuffer();
+            this.hsl = buffer.slice(tableBytes, tableBytes).order(buffer.order()).asIntBuffer();
+            this.cmyk = buffer.slice(2 * tableBytes, tableBytes).order(buffer.order()).asIntBuffer();
+        }
+    }
+}
@@ -0,0 +1,456 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Headless entry point. Never touches Swing or anything else that needs a display, so it runs on machines without one.
+ * The image commands (palette, adjust) and --cmyk-profile only load the headless parts of java.awt: java.awt.image,
+ * java.awt.color and ImageIO.
+ */
+public final class CommandLine {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_LINE_BYTES = 256;
+    private static final int REPORTED_FAILURES = 10;
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILED_LINES = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = """
+            Usage:
+              ColorCalc                                                   starts the user interface
+              ColorCalc convert --from <space> --to <space> [--style <n>] [--cmyk-profile <icc>] <input> <output>
+              ColorCalc bench [--filter <name>] [--warmup <seconds>] [--time <seconds>]
+              ColorCalc serve [--host <address>] [--port <n>]
+              ColorCalc palette [--colors <n>] <image> <output>
+              ColorCalc pack --from <space> [--columns <hsl,cmyk>] <input> <output>
+              ColorCalc verify [--spaces <rgb,hsl,...>] [--max-error <n>] [--output <file>]
+              ColorCalc audit [--from <space>] [--min-ratio <r>] <palette> <output>
+              ColorCalc adjust [--hue <degrees>] [--saturation <x>] [--lightness <x>] [--brightness <x>]
+                               [--cyan <d>] [--magenta <d>] [--yellow <d>] [--black <d>] <image> <output>
+
+            Color spaces: rgb, hex, dec, hsb (or hsv), hsl, cmyk. convert also takes --from auto for mixed input.
+            --cmyk-profile converts CMYK through an ICC printer profile instead of the formula, see CmykProfile.
+            Input and output are files with one color per line, "-" stands for stdin/stdout.
+            The style picks one of the notations shown in the user interface (0 = first one).
+            serve listens on localhost:8080 by default, see ColorServer for the endpoints.
+            palette writes the dominant colors of a PNG or JPEG (8 by default) in every color space.
+            pack turns a text palette into a binary palette file, optionally with precomputed HSL and CMYK columns.
+            verify formats and parses back all 2^24 colors and fails if a channel is off by more than --max-error,
+            by default by more than the rounding of the notation (0 for rgb, hex and dec, see RoundTrip.tolerance).
+            audit counts the WCAG contrast partners of every palette color (hex and ratio 4.5 by default),
+            also as seen with protanopia, deuteranopia and tritanopia.
+            adjust rotates the hue, scales HSL saturation and lightness and HSB brightness by the factors
+            and adds the offsets in [-1, 1] to the CMYK channels of an image, the output format follows its extension.""";
+
+    /**
+     * Utility Class for the command line mode.
+     */
+    private CommandLine() {}
+
+    /**
+     * Runs the command given by the arguments and returns the process exit code.
+     */
+    public static int run(String[] args) {
+        final List<String> positional = new ArrayList<>();
+        final Map<String, String> options = new HashMap<>();
+
+        try {
+            parseArguments(args, positional, options);
+
+            if (positional.isEmpty()) {
+                return usage(null);
+            }
+
+            return switch (positional.get(0)) {
+                case "convert" -> convert(positional, options);
+                case "bench" -> bench(options);
+                case "serve" -> serve(options);
+                case "palette" -> palette(positional, options);
+                case "pack" -> pack(positional, options);
+                case "verify" -> verify(options);
+                case "audit" -> audit(positional, options);
+                case "adjust" -> adjust(positional, options);
+                default -> usage("Unknown command: " + positional.get(0));
+            };
+        } catch (IllegalArgumentException ex) {
+            return usage(ex.getMessage());
+        } catch (IOException ex) {
+            System.err.println("I/O error: " + ex.getMessage());
+            return EXIT_USAGE;
+        }
+    }
+
+    /**
+     * Streams the input line by line into the output, so memory use does not depend on the file size.
+     * Lines that can't be parsed are left empty in the output to keep both files aligned.
+     */
+    private static int convert(List<String> positional, Map<String, String> options) throws IOException {
+        if (positional.size() != 3) {
+            return usage("convert needs an input and an output");
+        }
+
+        final String fromName = required(options, "from");
+        final ColorSpace from = fromName.equalsIgnoreCase("auto") ? null : ColorSpace.fromName(fromName);
+        final ColorSpace to = ColorSpace.fromName(required(options, "to"));
+        final int style = style(options, to);
+        final String fromLabel = from == null ? "detected color spaces" : from.label();
+        final CmykProfile profile = options.containsKey("cmyk-profile") ? CmykProfile.load(Path.of(options.get("cmyk-profile"))) : CmykProfile.configured();
+        final boolean profileIn = from == ColorSpace.CMYK && !profile.isFormula();
+        final boolean profileOut = to == ColorSpace.CMYK && !profile.isFormula();
+
+        long lines = 0;
+        long failed = 0;
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+        try (BufferedReader reader = openReader(positional.get(1));
+             WritableByteChannel writer = openWriter(positional.get(2))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lines++;
+
+                final int rgb = from == null ? ColorParser.parseAny(line) : profileIn ? ColorParser.parseCMYK(line, profile) : from.tryParse(line);
+
+                if (ColorParser.isError(rgb)) {
+                    if (failed++ < REPORTED_FAILURES) {
+                        System.err.println("Line " + lines + ": could not read \"" + line + "\" as " + (from == null ? "any color" : from.label()));
+                    }
+                } else if (profileOut) {
+                    ColorFormatter.appendCMYK(profile, style, rgb, buffer);
+                } else {
+                    ColorFormatter.append(to, style, rgb, buffer);
+                }
+
+                buffer.put(lineSeparator);
+
+                if (buffer.remaining() < MAX_LINE_BYTES) {
+                    drain(buffer, writer);
+                }
+            }
+
+            drain(buffer, writer);
+        }
+
+        System.err.println("Converted " + (lines - failed) + " of " + lines + " lines from " + fromLabel + " to " + to.label() + ".");
+
+        return failed == 0 ? EXIT_OK : EXIT_FAILED_LINES;
+    }
+
+    /**
+     * Measures all ColorCalc methods, see Benchmark.
+     */
+    private static int bench(Map<String, String> options) {
+        final double warmup = Double.parseDouble(options.getOrDefault("warmup", "1"));
+        final double time = Double.parseDouble(options.getOrDefault("time", "2"));
+
+        Benchmark.run(options.get("filter"), warmup, time);
+
+        return EXIT_OK;
+    }
+
+    /**
+     * Runs the HTTP service until the process is stopped, see ColorServer.
+     */
+    private static int serve(Map<String, String> options) throws IOException {
+        final String host = options.getOrDefault("host", "localhost");
+        final int port = Integer.parseInt(options.getOrDefault("port", "8080"));
+        final ColorServer server = ColorServer.start(host, port);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        System.err.println("Serving on http://" + host + ":" + server.port() + "/convert and /metrics");
+
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        return EXIT_OK;
+    }
+
+    /**
+     * Extracts the dominant colors of an image, see PaletteExtractor.
+     */
+    private static int palette(List<String> positional, Map<String, String> options) throws IOException {
+        if (positional.size() != 3) {
+            return usage("palette needs an image and an output");
+        }
+
+        final int colors = Integer.parseInt(options.getOrDefault("colors", "8"));
+        final PaletteExtractor.Palette palette = PaletteExtractor.extract(Path.of(positional.get(1)), colors);
+
+        try (Writer writer = Channels.newWriter(openWriter(positional.get(2)), StandardCharsets.UTF_8)) {
+            palette.write(writer);
+        }
+
+        return EXIT_OK;
+    }
+
+    /**
+     * Converts a text palette into a binary palette file, see PaletteFile.
+     */
+    private static int pack(List<String> positional, Map<String, String> options) throws IOException {
+        if (positional.size() != 3) {
+            return usage("pack needs an input and an output");
+        }
+
+        final ColorSpace from = ColorSpace.fromName(required(options, "from"));
+        int columns = 0;
+
+        for (String column : options.getOrDefault("columns", "").split(",")) {
+            columns |= switch (column.strip().toLowerCase(Locale.ROOT)) {
+                case "" -> 0;
+                case "hsl" -> PaletteFile.HSL;
+                case "cmyk" -> PaletteFile.CMYK;
+                default -> throw new IllegalArgumentException("Unknown column: " + column);
+            };
+        }
+
+        final int[] colors = PaletteFile.readText(Path.of(positional.get(1)), from);
+        PaletteFile.write(Path.of(positional.get(2)), colors, columns);
+        checkPacked(Path.of(positional.get(2)), colors, columns);
+
+        System.err.println("Packed " + colors.length + " colors.");
+
+        return EXIT_OK;
+    }
+
+    /**
+     * Reads the packed file back and compares every color and column entry, so a broken layout fails the command.
+     */
+    private static void checkPacked(Path file, int[] colors, int columns) throws IOException {
+        final PaletteFile packed = PaletteFile.open(file);
+        final float[] expectedHsl = new float[3];
+        final float[] actualHsl = new float[3];
+        final float[] expectedCmyk = new float[4];
+        final float[] actualCmyk = new float[4];
+
+        if (packed.size() != colors.length || packed.hasHsl() != ((columns & PaletteFile.HSL) != 0)
+                || packed.hasCmyk() != ((columns & PaletteFile.CMYK) != 0)) {
+            throw new IOException("Packed palette file doesn't match its input: " + file);
+        }
+
+        for (int i = 0; i < colors.length; i++) {
+            boolean same = packed.rgb(i) == colors[i];
+
+            if (packed.hasHsl()) {
+                same &= Arrays.equals(ColorEngine.rgbToHsl(colors[i], expectedHsl), packed.hsl(i, actualHsl));
+            }
+
+            if (packed.hasCmyk()) {
+                same &= Arrays.equals(ColorEngine.rgbToCmyk(colors[i], expectedCmyk), packed.cmyk(i, actualCmyk));
+            }
+
+            if (!same) {
+                throw new IOException("Color " + i + " of the packed palette file doesn't read back: " + file);
+            }
+        }
+    }
+
+    /**
+     * Checks the round trip of every color through the color spaces, see RoundTrip.
+     */
+    private static int verify(Map<String, String> options) throws IOException {
+        final String names = options.get("spaces");
+        final ColorSpace[] spaces = names == null
+                ? ColorSpace.values()
+                : Arrays.stream(names.split(",")).map(String::strip).map(ColorSpace::fromName).toArray(ColorSpace[]::new);
+        final int allowedError = maxError(options.get("max-error"));
+        final RoundTrip.Report[] reports;
+
+        if (options.containsKey("output")) {
+            try (Writer writer = Channels.newWriter(openWriter(options.get("output")), StandardCharsets.UTF_8)) {
+                reports = RoundTrip.run(spaces, writer);
+            }
+        } else {
+            reports = RoundTrip.run(spaces, null);
+        }
+
+        int exitCode = EXIT_OK;
+
+        for (RoundTrip.Report report : reports) {
+            final int allowed = allowedError < 0 ? RoundTrip.tolerance(report.space()) : allowedError;
+
+            if (report.maxError() > allowed) {
+                System.err.println(report.space().label() + " is off by up to " + report.maxError() + ", allowed are " + allowed + ".");
+                exitCode = EXIT_FAILED_LINES;
+            }
+        }
+
+        return exitCode;
+    }
+
+    /**
+     * Audits the contrast of all color pairs of a text palette, see Accessibility.
+     */
+    private static int audit(List<String> positional, Map<String, String> options) throws IOException {
+        if (positional.size() != 3) {
+            return usage("audit needs a palette and an output");
+        }
+
+        final ColorSpace from = ColorSpace.fromName(options.getOrDefault("from", "hex"));
+        final double minRatio = Double.parseDouble(options.getOrDefault("min-ratio", String.valueOf(Accessibility.AA)));
+        final int[] palette = PaletteFile.readText(Path.of(positional.get(1)), from);
+        final Accessibility.Audit[] audits;
+
+        try (Writer writer = Channels.newWriter(openWriter(positional.get(2)), StandardCharsets.UTF_8)) {
+            audits = Accessibility.write(palette, minRatio, writer);
+        }
+
+        for (Accessibility.Audit audit : audits) {
+            final String vision = audit.deficiency() == null ? "normal vision" : audit.deficiency().name().toLowerCase(Locale.ROOT);
+            System.err.println(audit.passingPairs() + " of " + audit.pairs() + " pairs reach " + minRatio + ":1 with " + vision + ".");
+        }
+
+        return EXIT_OK;
+    }
+
+    /**
+     * Recolors an image, see ImageAdjuster.
+     */
+    private static int adjust(List<String> positional, Map<String, String> options) throws IOException {
+        if (positional.size() != 3) {
+            return usage("adjust needs an image and an output");
+        }
+
+        final ImageAdjuster.Adjustment adjustment = new ImageAdjuster.Adjustment(
+                Float.parseFloat(options.getOrDefault("hue", "0")),
+                Float.parseFloat(options.getOrDefault("saturation", "1")),
+                Float.parseFloat(options.getOrDefault("lightness", "1")),
+                Float.parseFloat(options.getOrDefault("brightness", "1")),
+                Float.parseFloat(options.getOrDefault("cyan", "0")),
+                Float.parseFloat(options.getOrDefault("magenta", "0")),
+                Float.parseFloat(options.getOrDefault("yellow", "0")),
+                Float.parseFloat(options.getOrDefault("black", "0")));
+
+        ImageAdjuster.adjust(Path.of(positional.get(1)), Path.of(positional.get(2)), adjustment);
+
+        return EXIT_OK;
+    }
+
+    /**
+     * Helper methods for arguments and files.
+     */
+    private static void parseArguments(String[] args, List<String> positional, Map<String, String> options) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+    }
+
+    /**
+     * The --max-error value, or -1 for the tolerance of each color space if it is not given.
+     */
+    private static int maxError(String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        try {
+            final int maxError = Integer.parseInt(value.strip());
+
+            if (maxError >= 0 && maxError <= 255) {
+                return maxError;
+            }
+        } catch (NumberFormatException ex) {
+            // Reported below like a value out of range.
+        }
+
+        throw new IllegalArgumentException("--max-error must be a whole number from 0 to 255: " + value);
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        final String value = options.get(name);
+
+        if (value == null) {
+            throw new IllegalArgumentException("Missing option --" + name);
+        }
+
+        return value;
+    }
+
+    private static int style(Map<String, String> options, ColorSpace space) {
+        final String value = options.get("style");
+
+        if (value == null) {
+            return space.defaultStyle();
+        }
+
+        final int style = Integer.parseInt(value);
+        final int styles = space.styles();
+
+        if (style < 0 || style >= styles) {
+            throw new IllegalArgumentException(space.label() + " only has styles 0 to " + (styles - 1));
+        }
+
+        return style;
+    }
+
+    private static BufferedReader openReader(String name) throws IOException {
+        if (name.equals("-")) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        final FileChannel channel = FileChannel.open(Path.of(name), StandardOpenOption.READ);
+
+        return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Formatted colors are written as UTF-8 bytes straight into the channel, without going through Strings.
+     */
+    private static WritableByteChannel openWriter(String name) throws IOException {
+        if (name.equals("-")) {
+            return Channels.newChannel(System.out);
+        }
+
+        return FileChannel.open(Path.of(name), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    private static int usage(String error) {
+        final PrintStream out = error == null ? System.out : System.err;
+
+        if (error != null) {
+            out.println(error);
+        }
+
+        out.println(USAGE);
+
+        return error == null ? EXIT_OK : EXIT_USAGE;
+    }
+}
@@ -0,0 +1,148 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Optional call counts, failure counts and latencies of every parse and format, per color space. Enabled with
+ * -Dcolorcalc.metrics=true and published over JMX as ColorCalc:type=ConversionMetrics,operation=...,space=...
+ * (see jconsole or jcmd).
+ * <br>
+ * <br>
+ * When disabled, ENABLED is a constant false and the JIT drops the instrumentation in ColorSpace and
+ * ColorFormatter entirely, not even System.nanoTime is called.
+ */
+public final class ConversionMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("colorcalc.metrics");
+
+    private static final String DOMAIN = "ColorCalc";
+
+    /**
+     * Indexed by ColorSpace ordinal, null when disabled.
+     */
+    private static final Operation[] PARSE = ENABLED ? operations("parse") : null;
+    private static final Operation[] FORMAT = ENABLED ? operations("format") : null;
+
+    /**
+     * Utility Class for conversion metrics.
+     */
+    private ConversionMetrics() {}
+
+    /**
+     * Methods the conversions report to. Only to be called when ENABLED is true.
+     * <br>
+     * <br>
+     * Results that are ColorParser error codes count as failures.
+     */
+    static void parsed(ColorSpace space, int result, long nanos) {
+        PARSE[space.ordinal()].record(nanos, ColorParser.isError(result));
+    }
+
+    static void formatted(ColorSpace space, long nanos) {
+        FORMAT[space.ordinal()].record(nanos, false);
+    }
+
+    /**
+     * Attributes of one operation as seen over JMX. Latencies are in microseconds.
+     */
+    public interface OperationMXBean {
+        long getCalls();
+
+        long getFailures();
+
+        double getMeanMicros();
+
+        double getP50Micros();
+
+        double getP90Micros();
+
+        double getP99Micros();
+
+        double getP999Micros();
+
+        double getMaxMicros();
+
+        void reset();
+    }
+
+    private static final class Operation implements OperationMXBean {
+        private final LongAdder failures = new LongAdder();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        void record(long nanos, boolean failed) {
+            latencies.record(nanos);
+
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        @Override
+        public long getCalls() {
+            return latencies.count();
+        }
+
+        @Override
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latencies.meanNanos() / 1e3;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return latencies.percentileNanos(0.5) / 1e3;
+        }
+
+        @Override
+        public double getP90Micros() {
+            return latencies.percentileNanos(0.9) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return latencies.percentileNanos(0.99) / 1e3;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return latencies.percentileNanos(0.999) / 1e3;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return latencies.maxNanos() / 1e3;
+        }
+
+        @Override
+        public void reset() {
+            latencies.reset();
+            failures.reset();
+        }
+    }
+
+    /**
+     * Creates and registers one Operation per color space. Failing to register only costs the JMX view.
+     */
+    private static Operation[] operations(String name) {
+        final ColorSpace[] spaces = ColorSpace.values();
+        final Operation[] operations = new Operation[spaces.length];
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        for (int i = 0; i < spaces.length; i++) {
+            operations[i] = new Operation();
+
+            try {
+                server.registerMBean(operations[i], new ObjectName(DOMAIN + ":type=ConversionMetrics,operation=" + name + ",space=" + spaces[i].name()));
+            } catch (JMException ex) {
+                System.err.println("Could not register conversion metrics: " + ex.getMessage());
+            }
+        }
+
+        return operations;
+    }
+}
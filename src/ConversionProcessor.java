@@ -0,0 +1,330 @@
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Flow stage that converts a stream of colors, e.g. from a SubmissionPublisher fed by an ingest queue, into their
+ * notation in a target color space. Inputs are either text in any color space (see parsing) or packed 0xRRGGBB
+ * ints (see formatting).
+ * <br>
+ * <br>
+ * Items are converted in batches of up to BATCH on the executor, never on the thread that delivers them. The stage
+ * asks upstream for at most two batches ahead of what it has emitted, and emits no more than the subscriber
+ * requested, so a slow subscriber slows down the publisher instead of filling the memory. Inputs that can't be
+ * parsed are handed to the failure handler and left out of the output, the stream goes on.
+ * <br>
+ * <br>
+ * Order is kept. A stage serves exactly one subscriber and converts on one thread at a time, so use one stage
+ * per core to convert in parallel.
+ */
+public final class ConversionProcessor<T> implements Flow.Processor<T, String> {
+    public static final int BATCH = 256;
+
+    /**
+     * An input that could not be parsed, and the ColorParser error code.
+     */
+    public record Failure(Object input, int error) {}
+
+    private final ToIntFunction<? super T> parser;
+    private final ColorSpace to;
+    private final int style;
+    private final Executor executor;
+    private final Consumer<? super Failure> failures;
+
+    private final Queue<T> inputs = new ConcurrentLinkedQueue<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pendingDrains = new AtomicInteger();
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super String> downstream;
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private volatile Throwable violation;
+    private volatile boolean terminated;
+
+    /**
+     * Only touched while draining, which never runs on two threads at once.
+     */
+    private final Queue<String> outputs = new ArrayDeque<>();
+    private final StringBuilder text = new StringBuilder(48);
+    private long outstanding;
+
+    private ConversionProcessor(ToIntFunction<? super T> parser, ColorSpace to, int style, Executor executor, Consumer<? super Failure> failures) {
+        if (style < 0 || style >= to.styles()) {
+            throw new IllegalArgumentException(to.label() + " only has styles 0 to " + (to.styles() - 1));
+        }
+
+        this.parser = parser;
+        this.to = to;
+        this.style = style;
+        this.executor = Objects.requireNonNull(executor);
+        this.failures = Objects.requireNonNull(failures);
+    }
+
+    /**
+     * Methods that create stages.
+     * <br>
+     * <br>
+     * Parses text in the given color space, or detects it per item if from is null (see ColorParser.detect).
+     */
+    public static ConversionProcessor<CharSequence> parsing(ColorSpace from, ColorSpace to, int style, Executor executor, Consumer<? super Failure> failures) {
+        final ToIntFunction<CharSequence> parser = from == null ? ColorParser::parseAny : from::tryParse;
+
+        return new ConversionProcessor<>(parser, to, style, executor, failures);
+    }
+
+    /**
+     * Same on the common pool, in the default style of the target space.
+     */
+    public static ConversionProcessor<CharSequence> parsing(ColorSpace from, ColorSpace to, Consumer<? super Failure> failures) {
+        return parsing(from, to, to.defaultStyle(), ForkJoinPool.commonPool(), failures);
+    }
+
+    /**
+     * Formats packed colors, alpha bits are ignored. These never fail.
+     */
+    public static ConversionProcessor<Integer> formatting(ColorSpace to, int style, Executor executor) {
+        return new ConversionProcessor<>(rgb -> rgb & 0xFFFFFF, to, style, executor, failure -> {});
+    }
+
+    /**
+     * Methods of the upstream side, called by the publisher.
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+
+            return;
+        }
+
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(T item) {
+        inputs.add(Objects.requireNonNull(item));
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = Objects.requireNonNull(throwable);
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    /**
+     * Methods of the downstream side. Only the first subscriber is accepted, later ones get an IllegalStateException.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        Objects.requireNonNull(subscriber);
+
+        synchronized (this) {
+            if (downstream != null) {
+                subscriber.onSubscribe(new Rejected());
+                subscriber.onError(new IllegalStateException("ConversionProcessor only serves one subscriber"));
+
+                return;
+            }
+
+            downstream = subscriber;
+        }
+
+        subscriber.onSubscribe(new Subscription());
+        drain();
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Requested " + n + " items, must be positive"));
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+    }
+
+    private static final class Rejected implements Flow.Subscription {
+        @Override
+        public void request(long n) {}
+
+        @Override
+        public void cancel() {}
+    }
+
+    /**
+     * Helper methods for draining.
+     * <br>
+     * <br>
+     * Every event asks for a drain, and only the first one while none is running hands it to the executor. The
+     * running drain loops until it has seen all events that came in meanwhile.
+     */
+    private void drain() {
+        if (pendingDrains.getAndIncrement() != 0) {
+            return;
+        }
+
+        try {
+            executor.execute(this::drainLoop);
+        } catch (RejectedExecutionException ex) {
+            pendingDrains.set(0);
+            cancelled = true;
+            cancelUpstream();
+            terminate(ex);
+        }
+    }
+
+    private void drainLoop() {
+        int missed = 1;
+
+        do {
+            try {
+                drainOnce();
+            } catch (RuntimeException ex) {
+                cancelled = true;
+                cancelUpstream();
+                terminate(ex);
+            }
+
+            missed = pendingDrains.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainOnce() {
+        if (cancelled) {
+            cancelUpstream();
+            inputs.clear();
+            outputs.clear();
+
+            if (violation != null) {
+                terminate(violation);
+            }
+
+            return;
+        }
+
+        final Flow.Subscriber<? super String> subscriber = downstream;
+
+        if (subscriber == null || terminated) {
+            return;
+        }
+
+        final long requested = demand.get();
+        long emitted = 0;
+
+        while (true) {
+            while (emitted < requested && !outputs.isEmpty()) {
+                subscriber.onNext(outputs.poll());
+                emitted++;
+
+                if (cancelled) {
+                    return;
+                }
+            }
+
+            if (!outputs.isEmpty() || inputs.isEmpty()) {
+                break;
+            }
+
+            convertBatch();
+        }
+
+        if (emitted > 0 && requested != Long.MAX_VALUE) {
+            demand.addAndGet(-emitted);
+        }
+
+        final Flow.Subscription subscription = upstream;
+
+        if (subscription != null && !done && outstanding + outputs.size() <= BATCH) {
+            outstanding += BATCH;
+            subscription.request(BATCH);
+        }
+
+        if (done && inputs.isEmpty() && outputs.isEmpty()) {
+            terminate(error);
+        }
+    }
+
+    /**
+     * Converts up to BATCH inputs into outputs, failures go to the handler.
+     */
+    private void convertBatch() {
+        T item;
+
+        for (int i = 0; i < BATCH && (item = inputs.poll()) != null; i++) {
+            outstanding--;
+
+            final int rgb = parser.applyAsInt(item);
+
+            if (ColorParser.isError(rgb)) {
+                failures.accept(new Failure(item, rgb));
+            } else {
+                text.setLength(0);
+                outputs.add(ColorFormatter.append(to, style, rgb, text).toString());
+            }
+        }
+    }
+
+    /**
+     * Cancels because the subscriber broke the rules. The error is signaled by the drain, so signals stay serial.
+     */
+    private void fail(Throwable throwable) {
+        violation = throwable;
+        cancelled = true;
+        drain();
+    }
+
+    private void cancelUpstream() {
+        final Flow.Subscription subscription = upstream;
+
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * Signals completion, or the error if there is one, exactly once.
+     */
+    private synchronized void terminate(Throwable throwable) {
+        final Flow.Subscriber<? super String> subscriber = downstream;
+
+        if (terminated || subscriber == null) {
+            return;
+        }
+
+        terminated = true;
+
+        if (throwable == null) {
+            subscriber.onComplete();
+        } else {
+            subscriber.onError(throwable);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Recolors whole images: hue rotation, saturation and lightness scaling in HSL, brightness scaling in HSB and
+ * offsets per CMYK channel, with the same float math as the single color conversions in ColorEngine.
+ * <br>
+ * <br>
+ * The pixels are read from and written back to the int array behind the raster, no Color, String or array is
+ * created per pixel. The image is split into TILE_SIZE by TILE_SIZE tiles that run in parallel on the common pool.
+ * Every task remembers its last results in a small direct mapped cache, so flat artwork with few distinct colors
+ * is converted once per color instead of once per pixel. Alpha is kept as it is.
+ */
+public final class ImageAdjuster {
+    public static final int TILE_SIZE = 64;
+
+    /**
+     * Tiles per task, so that a task covers about as many pixels as the ColorBulk loops.
+     */
+    private static final int TILES_PER_TASK = Math.max(1, ColorBulk.SPLIT_THRESHOLD / (TILE_SIZE * TILE_SIZE));
+
+    private static final int CACHE_BITS = 12;
+    private static final int EMPTY = -1;
+
+    /**
+     * What to change, applied in this order:
+     * <br>
+     * <br>
+     * HSL: the hue is rotated by the given degrees (wrapping around the color circle), saturation and lightness
+     * are multiplied by the factors. HSB: brightness is multiplied by its factor. CMYK: the offsets in [-1, 1] are
+     * added to the channels. Results are clamped to the valid ranges.
+     */
+    public record Adjustment(float hue, float saturation, float lightness, float brightness,
+                             float cyan, float magenta, float yellow, float black) {
+        public static final Adjustment NONE = new Adjustment(0f, 1f, 1f, 1f, 0f, 0f, 0f, 0f);
+
+        public Adjustment {
+            if (!Float.isFinite(hue)) {
+                throw new IllegalArgumentException("Hue rotation must be finite: " + hue);
+            }
+
+            hue = ColorEngine.cyclicPeriodicity(hue);
+
+            checkFactor("Saturation", saturation);
+            checkFactor("Lightness", lightness);
+            checkFactor("Brightness", brightness);
+            checkOffset("Cyan", cyan);
+            checkOffset("Magenta", magenta);
+            checkOffset("Yellow", yellow);
+            checkOffset("Black", black);
+        }
+
+        /**
+         * The adjusted packed color, alpha bits are ignored.
+         */
+        public int apply(int rgb) {
+            int result = rgb & 0xFFFFFF;
+
+            if (changesHSL()) {
+                final float lgt = ColorEngine.hslLightness(result);
+                final float sat = ColorEngine.sInHSBtoHSL(ColorEngine.hsbBrightness(result), lgt);
+                final float rotated = ColorEngine.cyclicPeriodicity(ColorEngine.hsbHue(result) * 360f + hue);
+
+                result = ColorEngine.hslToPacked(rotated, clamp(sat * saturation), clamp(lgt * lightness));
+            }
+
+            if (brightness != 1f) {
+                result = ColorEngine.hsbToRgb(ColorEngine.hsbHue(result), ColorEngine.hsbSaturation(result),
+                        clamp(ColorEngine.hsbBrightness(result) * brightness));
+            }
+
+            if (changesCMYK()) {
+                final float k = ColorEngine.cmykBlackKey(result);
+
+                result = ColorEngine.cmykToPacked(
+                        clamp(ColorEngine.cmykComponent(ColorEngine.red(result), k) + cyan),
+                        clamp(ColorEngine.cmykComponent(ColorEngine.green(result), k) + magenta),
+                        clamp(ColorEngine.cmykComponent(ColorEngine.blue(result), k) + yellow),
+                        clamp(k + black));
+            }
+
+            return result;
+        }
+
+        public boolean isIdentity() {
+            return !changesHSL() && brightness == 1f && !changesCMYK();
+        }
+
+        private boolean changesHSL() {
+            return hue != 0f || saturation != 1f || lightness != 1f;
+        }
+
+        private boolean changesCMYK() {
+            return cyan != 0f || magenta != 0f || yellow != 0f || black != 0f;
+        }
+
+        private static void checkFactor(String name, float factor) {
+            if (!(factor >= 0f) || factor == Float.POSITIVE_INFINITY) {
+                throw new IllegalArgumentException(name + " factor must be finite and not negative: " + factor);
+            }
+        }
+
+        private static void checkOffset(String name, float offset) {
+            if (!(offset >= -1f && offset <= 1f)) {
+                throw new IllegalArgumentException(name + " offset must be in [-1, 1]: " + offset);
+            }
+        }
+
+        private static float clamp(float value) {
+            return Math.min(1f, Math.max(0f, value));
+        }
+    }
+
+    /**
+     * Utility Class for image adjustments.
+     */
+    private ImageAdjuster() {}
+
+    /**
+     * Methods that adjust images.
+     * <br>
+     * <br>
+     * Reads the image file, adjusts it and writes it in the format given by the extension of the output
+     * (anything ImageIO writes, e.g. png, jpg, bmp or gif). Runs headless. Formats without alpha, like jpg and bmp,
+     * get translucent images composited over white.
+     */
+    public static void adjust(Path input, Path output, Adjustment adjustment) throws IOException {
+        final BufferedImage image = ImageIO.read(input.toFile());
+
+        if (image == null) {
+            throw new IOException("No ImageIO reader for " + input);
+        }
+
+        final String name = output.getFileName().toString();
+        final String format = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+
+        BufferedImage adjusted = adjust(image, adjustment);
+
+        if (adjusted.getColorModel().hasAlpha() && !ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(adjusted), format).hasNext()) {
+            adjusted = flatten(adjusted);
+        }
+
+        if (!ImageIO.write(adjusted, format, output.toFile())) {
+            throw new IOException("No ImageIO writer for " + format + " images of this type");
+        }
+    }
+
+    /**
+     * Adjusted copy of any image, as TYPE_INT_ARGB if it has alpha and TYPE_INT_RGB otherwise.
+     */
+    public static BufferedImage adjust(BufferedImage image, Adjustment adjustment) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final boolean hasAlpha = image.getColorModel().hasAlpha();
+        final BufferedImage copy = new BufferedImage(width, height, hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        final int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            copy.setRGB(0, y, width, 1, row, 0, width);
+        }
+
+        adjustInPlace(copy, adjustment);
+
+        return copy;
+    }
+
+    /**
+     * Opaque TYPE_INT_RGB copy of the image, composited over white.
+     */
+    public static BufferedImage flatten(BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final BufferedImage flat = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+
+            for (int x = 0; x < width; x++) {
+                final int alpha = row[x] >>> 24;
+                final int white = 255 * (255 - alpha) + 127;
+
+                row[x] = ((ColorEngine.red(row[x]) * alpha + white) / 255) << 16
+                        | ((ColorEngine.green(row[x]) * alpha + white) / 255) << 8
+                        | (ColorEngine.blue(row[x]) * alpha + white) / 255;
+            }
+
+            flat.setRGB(0, y, width, 1, row, 0, width);
+        }
+
+        return flat;
+    }
+
+    /**
+     * Adjusts a TYPE_INT_RGB or TYPE_INT_ARGB image (also a subimage of one) directly in its raster.
+     */
+    public static void adjustInPlace(BufferedImage image, Adjustment adjustment) {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_INT_ARGB) {
+            throw new IllegalArgumentException("Only TYPE_INT_RGB and TYPE_INT_ARGB images can be adjusted in place, use adjust for a copy");
+        }
+
+        if (adjustment.isIdentity()) {
+            return;
+        }
+
+        final WritableRaster raster = image.getRaster();
+        final SinglePixelPackedSampleModel layout = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        final DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+
+        final int[] pixels = buffer.getData();
+        final int stride = layout.getScanlineStride();
+        final int origin = buffer.getOffset() + layout.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        final int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        ColorBulk.forRange(tilesX * tilesY, TILES_PER_TASK, (from, to) -> {
+            final int[] cachedColors = new int[1 << CACHE_BITS];
+            final int[] cachedResults = new int[1 << CACHE_BITS];
+            Arrays.fill(cachedColors, EMPTY);
+
+            for (int tile = from; tile < to; tile++) {
+                final int x0 = (tile % tilesX) * TILE_SIZE;
+                final int y0 = (tile / tilesX) * TILE_SIZE;
+                final int x1 = Math.min(x0 + TILE_SIZE, width);
+                final int y1 = Math.min(y0 + TILE_SIZE, height);
+
+                for (int y = y0; y < y1; y++) {
+                    final int start = origin + y * stride;
+
+                    for (int i = start + x0; i < start + x1; i++) {
+                        final int rgb = pixels[i] & 0xFFFFFF;
+                        final int slot = (rgb * 0x9E3779B9) >>> (Integer.SIZE - CACHE_BITS);
+
+                        if (cachedColors[slot] != rgb) {
+                            cachedColors[slot] = rgb;
+                            cachedResults[slot] = adjustment.apply(rgb);
+                        }
+
+                        pixels[i] = pixels[i] & 0xFF000000 | cachedResults[slot];
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * Nearest color search in CIELAB, i.e. the palette entry with the smallest CIE76 ΔE to a query color.
+ * <br>
+ * <br>
+ * The palette is stored as an implicit, balanced k-d tree: the entries are reordered so that the median of every
+ * range along its split axis sits in the middle of that range, with the smaller half to the left and the rest to
+ * the right. There are no node objects, only flat coordinate arrays, so a search touches little memory and
+ * visits only a few dozen entries even for palettes with tens of thousands of colors.
+ * <br>
+ * <br>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class LabIndex {
+    /**
+     * Ranges up to this size are scanned linearly instead of being split further.
+     */
+    private static final int LEAF_SIZE = 32;
+
+    private final float[] lightness;
+    private final float[] greenRed;
+    private final float[] blueYellow;
+    private final int[] colors;
+    private final int[] paletteIndices;
+
+    /**
+     * Split axis per range middle: 0 for L, 1 for a, 2 for b. Unused entries within leaves stay 0.
+     */
+    private final byte[] axes;
+
+    /**
+     * Builds the index for the palette of packed colors. Duplicates are fine, the first one is found.
+     */
+    public LabIndex(int[] palette) {
+        if (palette.length == 0) {
+            throw new IllegalArgumentException("The palette is empty");
+        }
+
+        final int size = palette.length;
+        final double[] lab = new double[3];
+
+        this.lightness = new float[size];
+        this.greenRed = new float[size];
+        this.blueYellow = new float[size];
+        this.colors = new int[size];
+        this.paletteIndices = new int[size];
+        this.axes = new byte[size];
+
+        for (int i = 0; i < size; i++) {
+            PerceptualColor.rgbToLab(palette[i], lab);
+            lightness[i] = (float) lab[0];
+            greenRed[i] = (float) lab[1];
+            blueYellow[i] = (float) lab[2];
+            colors[i] = palette[i] & 0xFFFFFF;
+            paletteIndices[i] = i;
+        }
+
+        build(0, size);
+    }
+
+    public int size() {
+        return colors.length;
+    }
+
+    /**
+     * Index within the palette of the entry closest to the packed color.
+     */
+    public int nearestIndex(int rgb) {
+        return paletteIndices[nearestSlot(rgb)];
+    }
+
+    /**
+     * The palette entry closest to the packed color.
+     */
+    public int nearest(int rgb) {
+        return colors[nearestSlot(rgb)];
+    }
+
+    /**
+     * Index within the palette of the entry closest to the Lab color.
+     */
+    public int nearestIndex(double l, double a, double b) {
+        return paletteIndices[nearestSlot((float) l, (float) a, (float) b)];
+    }
+
+    private int nearestSlot(int rgb) {
+        final double[] lab = PerceptualColor.rgbToLab(rgb, new double[3]);
+
+        return nearestSlot((float) lab[0], (float) lab[1], (float) lab[2]);
+    }
+
+    private int nearestSlot(float l, float a, float b) {
+        final Search search = new Search(l, a, b);
+        search(search, 0, colors.length);
+
+        return search.best;
+    }
+
+    /**
+     * State of one search, the query and the best entry found so far.
+     */
+    private static final class Search {
+        private final float l;
+        private final float a;
+        private final float b;
+        private int best = -1;
+        private float bestDistance = Float.POSITIVE_INFINITY;
+
+        Search(float l, float a, float b) {
+            this.l = l;
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    /**
+     * Visits the half containing the query first, then the other half only if the splitting plane is not farther
+     * away than the best entry so far. Distances are compared squared.
+     */
+    private void search(Search search, int from, int to) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                consider(search, i);
+            }
+
+            return;
+        }
+
+        final int middle = (from + to) >>> 1;
+        consider(search, middle);
+
+        final float planeDistance = coordinate(axes[middle], search) - coordinate(axes[middle], middle);
+
+        if (planeDistance < 0) {
+            search(search, from, middle);
+
+            if (planeDistance * planeDistance <= search.bestDistance) {
+                search(search, middle + 1, to);
+            }
+        } else {
+            search(search, middle + 1, to);
+
+            if (planeDistance * planeDistance <= search.bestDistance) {
+                search(search, from, middle);
+            }
+        }
+    }
+
+    /**
+     * Ties go to the entry that comes first in the palette.
+     */
+    private void consider(Search search, int slot) {
+        final float dl = lightness[slot] - search.l;
+        final float da = greenRed[slot] - search.a;
+        final float db = blueYellow[slot] - search.b;
+        final float distance = dl * dl + da * da + db * db;
+
+        if (distance < search.bestDistance
+                || (distance == search.bestDistance && paletteIndices[slot] < paletteIndices[search.best])) {
+            search.best = slot;
+            search.bestDistance = distance;
+        }
+    }
+
+    /**
+     * Helper methods for building the tree.
+     * <br>
+     * <br>
+     * Every range is split along the axis with the largest spread, at its median.
+     */
+    private void build(int from, int to) {
+        if (to - from <= LEAF_SIZE) {
+            return;
+        }
+
+        final int axis = widestAxis(from, to);
+        final int middle = (from + to) >>> 1;
+
+        select(axis, from, to - 1, middle);
+        axes[middle] = (byte) axis;
+
+        build(from, middle);
+        build(middle + 1, to);
+    }
+
+    private int widestAxis(int from, int to) {
+        int widest = 0;
+        float widestSpread = -1;
+
+        for (int axis = 0; axis < 3; axis++) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+
+            for (int i = from; i < to; i++) {
+                final float value = coordinate(axis, i);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+
+            if (max - min > widestSpread) {
+                widest = axis;
+                widestSpread = max - min;
+            }
+        }
+
+        return widest;
+    }
+
+    /**
+     * Quickselect: afterwards the entry at k has the k-th smallest coordinate within [low, high], with nothing
+     * larger before it and nothing smaller after it.
+     */
+    private void select(int axis, int low, int high, int k) {
+        while (low < high) {
+            final float pivot = coordinate(axis, (low + high) >>> 1);
+            int i = low;
+            int j = high;
+
+            while (i <= j) {
+                while (coordinate(axis, i) < pivot) {
+                    i++;
+                }
+
+                while (coordinate(axis, j) > pivot) {
+                    j--;
+                }
+
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private float coordinate(int axis, int slot) {
+        return switch (axis) {
+            case 0 -> lightness[slot];
+            case 1 -> greenRed[slot];
+            default -> blueYellow[slot];
+        };
+    }
+
+    private static float coordinate(int axis, Search search) {
+        return switch (axis) {
+            case 0 -> search.l;
+            case 1 -> search.a;
+            default -> search.b;
+        };
+    }
+
+    private void swap(int i, int j) {
+        swap(lightness, i, j);
+        swap(greenRed, i, j);
+        swap(blueYellow, i, j);
+        swap(colors, i, j);
+        swap(paletteIndices, i, j);
+    }
+
+    private static void swap(float[] array, int i, int j) {
+        final float value = array[i];
+        array[i] = array[j];
+        array[j] = value;
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        final int value = array[i];
+        array[i] = array[j];
+        array[j] = value;
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in nanoseconds. Every bucket is a LongAdder, so threads recording at the same time
+ * end up on different cells instead of fighting over one counter.
+ * <br>
+ * <br>
+ * The buckets are log-linear like in HdrHistogram: every power of two is split into SUB_BUCKETS equal parts, so a
+ * bucket is never wider than 1/8 of its values and percentiles are accurate to about 12%. Values from 1 ns up to
+ * about 18 minutes need just 304 buckets, anything longer ends up in the last one.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_TRACKED = (1L << 40) - 1;
+    private static final int BUCKETS = bucket(MAX_TRACKED) + 1;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        final long value = Math.max(0, nanos);
+
+        buckets[bucket(Math.min(value, MAX_TRACKED))].increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public long count() {
+        long count = 0;
+
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+
+        return count;
+    }
+
+    public double meanNanos() {
+        final long count = count();
+
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Highest value of the bucket that holds the given share (in [0, 1]) of all values, 0 if nothing was recorded.
+     * Concurrent updates may or may not be included.
+     */
+    public long percentileNanos(double share) {
+        final long[] counts = new long[BUCKETS];
+        long count = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+
+        final long rank = (long) Math.ceil(share * count);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+
+            if (counts[i] > 0 && seen >= rank) {
+                return Math.min(highestValue(i), maxNanos());
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Not atomic: values recorded while resetting may be lost or partly kept.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    /**
+     * Helper methods for the bucket layout.
+     * <br>
+     * <br>
+     * Values below SUB_BUCKETS get a bucket each. Above that, the highest bit picks the power of two and the
+     * SUB_BUCKET_BITS bits below it pick the part within it.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        final int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        final long mantissa = SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1));
+
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -1,5 +1,9 @@
 public class Main {
     public static void main(String[] args) {
-        UI.init();
+        if (args.length == 0) {
+            UI.init();
+        } else {
+            System.exit(CommandLine.run(args));
+        }
     }
 }
\ No newline at end of file
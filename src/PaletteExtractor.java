@@ -0,0 +1,490 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Extracts the dominant colors of an image (PNG, JPEG or anything else ImageIO reads).
+ * <br>
+ * <br>
+ * Pixels are counted into a histogram of 15-bit colors (5 bits per channel) that also keeps the exact channel sums
+ * per bin, so nothing but the histogram is kept once a tile has been counted. Median cut on that histogram gives the initial palette,
+ * a few rounds of k-means over the histogram bins refine it, spread over all cores like the ColorBulk loops.
+ * <br>
+ * <br>
+ * Tiled images are read one tile at a time. PNG and JPEG have no tiles and their readers can't skip ahead,
+ * so they are read in one go, subsampled if they have more than MAX_SAMPLES pixels to bound the memory use.
+ */
+public final class PaletteExtractor {
+    private static final int BITS = 5;
+    private static final int BINS = 1 << (3 * BITS);
+    private static final int MAX_SAMPLES = 1 << 22;
+    private static final int KMEANS_ROUNDS = 8;
+    private static final int MIN_BINS_PER_TASK = 64;
+
+    public static final int MAX_COLORS = 256;
+
+    /**
+     * Utility Class for palette extraction.
+     */
+    private PaletteExtractor() {}
+
+    /**
+     * Dominant colors of the image file, most common first. May return fewer colors than asked for
+     * if the image doesn't have that many distinct ones.
+     */
+    public static Palette extract(Path image, int colors) throws IOException {
+        checkColors(colors);
+
+        return quantize(histogram(image), colors);
+    }
+
+    public static Palette extract(BufferedImage image, int colors) {
+        checkColors(colors);
+
+        final Histogram histogram = new Histogram();
+        histogram.add(image);
+
+        return quantize(histogram, colors);
+    }
+
+    /**
+     * Packed colors, most common first, and the share of the pixels each one stands for.
+     */
+    public record Palette(int[] colors, double[] shares) {
+        public int size() {
+            return colors.length;
+        }
+
+        /**
+         * Writes a tab separated table with one color per line, in the default notation of every color space.
+         */
+        public void write(Writer out) throws IOException {
+            final StringBuilder line = new StringBuilder(128);
+
+            for (ColorSpace space : ColorSpace.values()) {
+                line.append(space.label()).append('\t');
+            }
+
+            out.append(line.append("Share").append(System.lineSeparator()));
+
+            for (int i = 0; i < colors.length; i++) {
+                line.setLength(0);
+
+                for (ColorSpace space : ColorSpace.values()) {
+                    space.format(colors[i], space.defaultStyle(), line).append('\t');
+                }
+
+                line.append(String.format(Locale.ROOT, "%.2f%%", shares[i] * 100)).append(System.lineSeparator());
+                out.append(line);
+            }
+        }
+    }
+
+    /**
+     * Methods that read the image into the histogram.
+     */
+    private static Histogram histogram(Path image) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(image.toFile())) {
+            final Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Not a supported image: " + image);
+            }
+
+            final ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(input, true, true);
+
+                final Histogram histogram = new Histogram();
+
+                if (reader.isImageTiled(0)) {
+                    final int columns = Math.ceilDiv(reader.getWidth(0), reader.getTileWidth(0));
+                    final int rows = Math.ceilDiv(reader.getHeight(0), reader.getTileHeight(0));
+
+                    for (int row = 0; row < rows; row++) {
+                        for (int column = 0; column < columns; column++) {
+                            histogram.add(reader.readTile(0, column, row));
+                        }
+                    }
+                } else {
+                    final ImageReadParam param = reader.getDefaultReadParam();
+                    final long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                    final int period = (int) Math.ceil(Math.sqrt((double) pixels / MAX_SAMPLES));
+
+                    if (period > 1) {
+                        param.setSourceSubsampling(period, period, 0, 0);
+                    }
+
+                    histogram.add(reader.read(0, param));
+                }
+
+                return histogram;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Pixel counts and channel sums per 15-bit bin.
+     */
+    private static final class Histogram {
+        private final int[] counts = new int[BINS];
+        private final long[] redSums = new long[BINS];
+        private final long[] greenSums = new long[BINS];
+        private final long[] blueSums = new long[BINS];
+
+        /**
+         * Goes through the image row by row, so only one row of ARGB pixels exists at a time.
+         * Fully transparent pixels are skipped, they have no color to speak of.
+         */
+        void add(BufferedImage image) {
+            final int width = image.getWidth();
+            final int[] row = new int[width];
+            final boolean hasAlpha = image.getColorModel().hasAlpha();
+
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+
+                for (int argb : row) {
+                    if (!hasAlpha || argb >>> 24 != 0) {
+                        add(argb);
+                    }
+                }
+            }
+        }
+
+        private void add(int rgb) {
+            final int r = ColorEngine.red(rgb);
+            final int g = ColorEngine.green(rgb);
+            final int b = ColorEngine.blue(rgb);
+            final int bin = bin(r, g, b);
+
+            counts[bin]++;
+            redSums[bin] += r;
+            greenSums[bin] += g;
+            blueSums[bin] += b;
+        }
+
+        private static int bin(int r, int g, int b) {
+            final int shift = 8 - BITS;
+
+            return (r >> shift) << (2 * BITS) | (g >> shift) << BITS | (b >> shift);
+        }
+    }
+
+    /**
+     * Methods that turn the histogram into a palette.
+     */
+    private static Palette quantize(Histogram histogram, int colors) {
+        final Bins bins = new Bins(histogram);
+
+        if (bins.size() == 0) {
+            return new Palette(new int[0], new double[0]);
+        }
+
+        final double[][] centers = medianCut(bins, colors);
+        refine(bins, centers);
+
+        return palette(bins, centers);
+    }
+
+    /**
+     * Non-empty bins in flat arrays, with the mean color of their pixels.
+     */
+    private static final class Bins {
+        private final int[] counts;
+        private final double[] red;
+        private final double[] green;
+        private final double[] blue;
+
+        Bins(Histogram histogram) {
+            int size = 0;
+
+            for (int count : histogram.counts) {
+                if (count > 0) {
+                    size++;
+                }
+            }
+
+            counts = new int[size];
+            red = new double[size];
+            green = new double[size];
+            blue = new double[size];
+
+            int i = 0;
+
+            for (int bin = 0; bin < BINS; bin++) {
+                final int count = histogram.counts[bin];
+
+                if (count > 0) {
+                    counts[i] = count;
+                    red[i] = (double) histogram.redSums[bin] / count;
+                    green[i] = (double) histogram.greenSums[bin] / count;
+                    blue[i] = (double) histogram.blueSums[bin] / count;
+                    i++;
+                }
+            }
+        }
+
+        int size() {
+            return counts.length;
+        }
+
+        double channel(int channel, int bin) {
+            return switch (channel) {
+                case 0 -> red[bin];
+                case 1 -> green[bin];
+                default -> blue[bin];
+            };
+        }
+    }
+
+    /**
+     * Source: <a href="https://en.wikipedia.org/wiki/Median_cut">Wikipedia: Median cut</a>.
+     * Keeps splitting the box with the most pixels times the widest channel range at the pixel median of that channel.
+     * Returns the pixel weighted mean color of every box.
+     */
+    private static double[][] medianCut(Bins bins, int colors) {
+        final Integer[] order = new Integer[bins.size()];
+        Arrays.setAll(order, i -> i);
+
+        // Boxes are ranges [starts[i], ends[i]) of the order array.
+        final int[] starts = new int[colors];
+        final int[] ends = new int[colors];
+        int boxes = 1;
+        ends[0] = order.length;
+
+        while (boxes < colors) {
+            int widest = -1;
+            int widestChannel = 0;
+            double widestScore = 0;
+
+            for (int box = 0; box < boxes; box++) {
+                final long pixels = pixels(bins, order, starts[box], ends[box]);
+
+                for (int channel = 0; channel < 3; channel++) {
+                    final double score = pixels * range(bins, order, starts[box], ends[box], channel);
+
+                    if (score > widestScore) {
+                        widest = box;
+                        widestChannel = channel;
+                        widestScore = score;
+                    }
+                }
+            }
+
+            if (widest < 0) {
+                break;
+            }
+
+            final int channel = widestChannel;
+            final int start = starts[widest];
+            final int end = ends[widest];
+
+            Arrays.sort(order, start, end, (x, y) -> Double.compare(bins.channel(channel, x), bins.channel(channel, y)));
+
+            final long half = pixels(bins, order, start, end) / 2;
+            long seen = 0;
+            int split = start;
+
+            while (split < end - 1 && seen + bins.counts[order[split]] <= half) {
+                seen += bins.counts[order[split++]];
+            }
+
+            starts[boxes] = Math.max(split, start + 1);
+            ends[boxes] = end;
+            ends[widest] = starts[boxes];
+            boxes++;
+        }
+
+        final double[][] centers = new double[boxes][3];
+
+        for (int box = 0; box < boxes; box++) {
+            long total = 0;
+
+            for (int i = starts[box]; i < ends[box]; i++) {
+                final int bin = order[i];
+                total += bins.counts[bin];
+                centers[box][0] += bins.red[bin] * bins.counts[bin];
+                centers[box][1] += bins.green[bin] * bins.counts[bin];
+                centers[box][2] += bins.blue[bin] * bins.counts[bin];
+            }
+
+            for (int channel = 0; channel < 3; channel++) {
+                centers[box][channel] /= total;
+            }
+        }
+
+        return centers;
+    }
+
+    private static long pixels(Bins bins, Integer[] order, int start, int end) {
+        long pixels = 0;
+
+        for (int i = start; i < end; i++) {
+            pixels += bins.counts[order[i]];
+        }
+
+        return pixels;
+    }
+
+    private static double range(Bins bins, Integer[] order, int start, int end, int channel) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int i = start; i < end; i++) {
+            final double value = bins.channel(channel, order[i]);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        return max - min;
+    }
+
+    /**
+     * Source: <a href="https://en.wikipedia.org/wiki/K-means_clustering">Wikipedia: k-means clustering</a>.
+     * Every bin moves to its closest center, weighted by its pixel count. The bins are split over the cores,
+     * every part sums up its own clusters and merges them when it's done.
+     * <br>
+     * <br>
+     * A bin costs k distances, so a part gets about as many distances as ColorBulk gives pixels to a task.
+     * With the plain pixel threshold the at most 2^15 bins would be split into 2 parts at best.
+     */
+    private static void refine(Bins bins, double[][] centers) {
+        final int k = centers.length;
+        final int binsPerTask = Math.max(MIN_BINS_PER_TASK, ColorBulk.SPLIT_THRESHOLD / k);
+
+        for (int round = 0; round < KMEANS_ROUNDS; round++) {
+            final double[] sums = new double[4 * k];
+
+            ColorBulk.forRange(bins.size(), binsPerTask, (from, to) -> {
+                final double[] partial = new double[4 * k];
+
+                for (int bin = from; bin < to; bin++) {
+                    final int cluster = closest(centers, bins.red[bin], bins.green[bin], bins.blue[bin]);
+                    final int count = bins.counts[bin];
+
+                    partial[4 * cluster] += count;
+                    partial[4 * cluster + 1] += bins.red[bin] * count;
+                    partial[4 * cluster + 2] += bins.green[bin] * count;
+                    partial[4 * cluster + 3] += bins.blue[bin] * count;
+                }
+
+                synchronized (sums) {
+                    for (int i = 0; i < sums.length; i++) {
+                        sums[i] += partial[i];
+                    }
+                }
+            });
+
+            boolean moved = false;
+
+            for (int cluster = 0; cluster < k; cluster++) {
+                final double count = sums[4 * cluster];
+
+                // A center that lost all its bins stays where it is.
+                if (count == 0) {
+                    continue;
+                }
+
+                for (int channel = 0; channel < 3; channel++) {
+                    final double mean = sums[4 * cluster + 1 + channel] / count;
+                    moved |= Math.abs(mean - centers[cluster][channel]) > 0.25;
+                    centers[cluster][channel] = mean;
+                }
+            }
+
+            if (!moved) {
+                break;
+            }
+        }
+    }
+
+    private static int closest(double[][] centers, double r, double g, double b) {
+        int closest = 0;
+        double closestDistance = Double.POSITIVE_INFINITY;
+
+        for (int cluster = 0; cluster < centers.length; cluster++) {
+            final double dr = centers[cluster][0] - r;
+            final double dg = centers[cluster][1] - g;
+            final double db = centers[cluster][2] - b;
+            final double distance = dr * dr + dg * dg + db * db;
+
+            if (distance < closestDistance) {
+                closest = cluster;
+                closestDistance = distance;
+            }
+        }
+
+        return closest;
+    }
+
+    /**
+     * Rounds the centers to packed colors and sorts them by the pixels they stand for. Centers that ended up
+     * with no pixels at all, or on the same packed color as a bigger one, are dropped.
+     */
+    private static Palette palette(Bins bins, double[][] centers) {
+        final long[] pixels = new long[centers.length];
+        long total = 0;
+
+        for (int bin = 0; bin < bins.size(); bin++) {
+            pixels[closest(centers, bins.red[bin], bins.green[bin], bins.blue[bin])] += bins.counts[bin];
+            total += bins.counts[bin];
+        }
+
+        final Integer[] order = new Integer[centers.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (x, y) -> Long.compare(pixels[y], pixels[x]));
+
+        final int[] colors = new int[centers.length];
+        final double[] shares = new double[centers.length];
+        int size = 0;
+
+        for (int cluster : order) {
+            if (pixels[cluster] == 0) {
+                continue;
+            }
+
+            final int rgb = ColorEngine.pack(
+                    (int) Math.round(centers[cluster][0]),
+                    (int) Math.round(centers[cluster][1]),
+                    (int) Math.round(centers[cluster][2]));
+            final int existing = indexOf(colors, size, rgb);
+
+            if (existing >= 0) {
+                shares[existing] += (double) pixels[cluster] / total;
+            } else {
+                colors[size] = rgb;
+                shares[size++] = (double) pixels[cluster] / total;
+            }
+        }
+
+        return new Palette(Arrays.copyOf(colors, size), Arrays.copyOf(shares, size));
+    }
+
+    private static int indexOf(int[] colors, int size, int rgb) {
+        for (int i = 0; i < size; i++) {
+            if (colors[i] == rgb) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static void checkColors(int colors) {
+        if (colors < 1 || colors > MAX_COLORS) {
+            throw new IllegalArgumentException("A palette has 1 to " + MAX_COLORS + " colors, not " + colors);
+        }
+    }
+}
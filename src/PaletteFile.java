@@ -0,0 +1,286 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Binary palette files. Opening one maps it into memory and reads nothing but the header, entries are read
+ * straight out of the mapping when they are asked for. So opening takes the same time for ten colors as for a million.
+ * <br>
+ * <br>
+ * Layout, all numbers little endian:
+ * <pre>
+ * offset  size  content
+ *  0      4     magic "CCPL"
+ *  4      2     version, currently 1
+ *  6      2     flags: 1 = HSL column present, 2 = CMYK column present
+ *  8      4     number of entries n
+ * 12      4     reserved, 0
+ * 16      8     offset of the RGB column: n ints 0x00RRGGBB
+ * 24      8     offset of the HSL column: n times hue (degrees), saturation and lightness as floats, or 0
+ * 32      8     offset of the CMYK column: n times cyan, magenta, yellow and black key as floats, or 0
+ * </pre>
+ * The HSL and CMYK columns hold exactly what ColorEngine.rgbToHsl and rgbToCmyk return for the color.
+ * Readers must reject versions they don't know. Newer versions may add columns after the header fields above.
+ * <br>
+ * <br>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class PaletteFile {
+    private static final int MAGIC = 'C' | 'C' << 8 | 'P' << 16 | 'L' << 24;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+
+    public static final int HSL = 1;
+    public static final int CMYK = 2;
+
+    private static final int HSL_ENTRY_SIZE = 3 * Float.BYTES;
+    private static final int CMYK_ENTRY_SIZE = 4 * Float.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int flags;
+    private final int size;
+    private final int rgbOffset;
+    private final int hslOffset;
+    private final int cmykOffset;
+
+    private PaletteFile(ByteBuffer buffer, int flags, int size, int rgbOffset, int hslOffset, int cmykOffset) {
+        this.buffer = buffer;
+        this.flags = flags;
+        this.size = size;
+        this.rgbOffset = rgbOffset;
+        this.hslOffset = hslOffset;
+        this.cmykOffset = cmykOffset;
+    }
+
+    /**
+     * Maps the file read-only and checks its header. Throws IOException if it is not a palette file of a known version.
+     */
+    public static PaletteFile open(Path file) throws IOException {
+        final ByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Palette file too large: " + file);
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a palette file: " + file);
+        }
+
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported palette file version " + buffer.getShort(4) + ": " + file);
+        }
+
+        final int flags = buffer.getShort(6);
+        final int size = buffer.getInt(8);
+
+        final int rgbOffset = column(buffer, 16, size, Integer.BYTES, true, file);
+        final int hslOffset = column(buffer, 24, size, HSL_ENTRY_SIZE, (flags & HSL) != 0, file);
+        final int cmykOffset = column(buffer, 32, size, CMYK_ENTRY_SIZE, (flags & CMYK) != 0, file);
+
+        return new PaletteFile(buffer, flags, size, rgbOffset, hslOffset, cmykOffset);
+    }
+
+    /**
+     * Number of colors.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean hasHsl() {
+        return (flags & HSL) != 0;
+    }
+
+    public boolean hasCmyk() {
+        return (flags & CMYK) != 0;
+    }
+
+    /**
+     * Methods that read a single entry. Throw IndexOutOfBoundsException for indices outside of [0, size).
+     * <br>
+     * <br>
+     * The packed 0xRRGGBB color.
+     */
+    public int rgb(int index) {
+        return buffer.getInt(rgbOffset + Integer.BYTES * Objects.checkIndex(index, size));
+    }
+
+    /**
+     * Writes hue (in degrees), saturation and lightness into out[0..2]. Computed on the fly without an HSL column.
+     */
+    public float[] hsl(int index, float[] out) {
+        if (!hasHsl()) {
+            return ColorEngine.rgbToHsl(rgb(index), out);
+        }
+
+        final int offset = hslOffset + HSL_ENTRY_SIZE * Objects.checkIndex(index, size);
+
+        for (int i = 0; i < 3; i++) {
+            out[i] = buffer.getFloat(offset + i * Float.BYTES);
+        }
+
+        return out;
+    }
+
+    /**
+     * Writes cyan, magenta, yellow and black key into out[0..3]. Computed on the fly without a CMYK column.
+     */
+    public float[] cmyk(int index, float[] out) {
+        if (!hasCmyk()) {
+            return ColorEngine.rgbToCmyk(rgb(index), out);
+        }
+
+        final int offset = cmykOffset + CMYK_ENTRY_SIZE * Objects.checkIndex(index, size);
+
+        for (int i = 0; i < 4; i++) {
+            out[i] = buffer.getFloat(offset + i * Float.BYTES);
+        }
+
+        return out;
+    }
+
+    /**
+     * All colors at once, e.g. for building a LabIndex.
+     */
+    public int[] colors() {
+        final int[] colors = new int[size];
+        buffer.slice(rgbOffset, size * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(colors);
+
+        return colors;
+    }
+
+    /**
+     * Writes the colors with the columns given by the flags (HSL, CMYK or both) into a new palette file.
+     */
+    public static void write(Path file, int[] colors, int columns) throws IOException {
+        final boolean hsl = (columns & HSL) != 0;
+        final boolean cmyk = (columns & CMYK) != 0;
+
+        final long rgbOffset = HEADER_SIZE;
+        final long rgbEnd = rgbOffset + (long) colors.length * Integer.BYTES;
+        final long hslOffset = hsl ? rgbEnd : 0;
+        final long cmykOffset = !cmyk ? 0 : hsl ? hslOffset + (long) colors.length * HSL_ENTRY_SIZE : rgbEnd;
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) (columns & (HSL | CMYK)))
+                .putInt(colors.length)
+                .putInt(0)
+                .putLong(rgbOffset)
+                .putLong(hslOffset)
+                .putLong(cmykOffset)
+                .flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            final float[] components = new float[4];
+
+            writeFully(channel, header);
+
+            for (int rgb : colors) {
+                flushIfFull(channel, buffer, Integer.BYTES);
+                buffer.putInt(rgb & 0xFFFFFF);
+            }
+
+            if (hsl) {
+                for (int rgb : colors) {
+                    flushIfFull(channel, buffer, HSL_ENTRY_SIZE);
+                    ColorEngine.rgbToHsl(rgb, components);
+                    buffer.putFloat(components[0]).putFloat(components[1]).putFloat(components[2]);
+                }
+            }
+
+            if (cmyk) {
+                for (int rgb : colors) {
+                    flushIfFull(channel, buffer, CMYK_ENTRY_SIZE);
+                    ColorEngine.rgbToCmyk(rgb, components);
+                    buffer.putFloat(components[0]).putFloat(components[1]).putFloat(components[2]).putFloat(components[3]);
+                }
+            }
+
+            writeFully(channel, buffer.flip());
+        }
+    }
+
+    /**
+     * Reads a text palette with one color per line in the given color space. Blank lines are skipped,
+     * any other line that can't be read is an error.
+     */
+    public static int[] readText(Path file, ColorSpace space) throws IOException {
+        int[] colors = new int[1024];
+        int size = 0;
+        int lineNumber = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                final int rgb = space.tryParse(line);
+
+                if (ColorParser.isError(rgb)) {
+                    throw new IOException("Line " + lineNumber + " of " + file + " is not a valid " + space.label() + " color: " + line);
+                }
+
+                if (size == colors.length) {
+                    colors = Arrays.copyOf(colors, size * 2);
+                }
+
+                colors[size++] = rgb;
+            }
+        }
+
+        return Arrays.copyOf(colors, size);
+    }
+
+    /**
+     * Helper methods for the file layout.
+     * <br>
+     * <br>
+     * Returns the offset of a column after checking that it lies within the file, or 0 for absent columns.
+     */
+    private static int column(ByteBuffer buffer, int field, int size, int entrySize, boolean present, Path file) throws IOException {
+        final long offset = buffer.getLong(field);
+
+        if (!present) {
+            return 0;
+        }
+
+        if (size < 0 || offset < HEADER_SIZE || offset + (long) size * entrySize > buffer.capacity()) {
+            throw new IOException("Truncated or corrupt palette file: " + file);
+        }
+
+        return (int) offset;
+    }
+
+    private static void flushIfFull(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() < needed) {
+            writeFully(channel, buffer.flip());
+            buffer.clear();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
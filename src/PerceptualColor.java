@@ -0,0 +1,279 @@
+/**
+ * Perceptual color spaces: CIELAB (D65 white point), OKLab and its polar form OKLCH. Colors are packed 0xRRGGBB ints
+ * like in ColorEngine, results go into caller-supplied buffers.
+ * <br>
+ * <br>
+ * The sRGB transfer function is never evaluated per call. Decoding looks up the linear value of each 8-bit channel
+ * in a table, encoding searches the linear values halfway between two channel values, which rounds exactly like
+ * Math.round on the encoded value would.
+ * <br>
+ * <br>
+ * Units: Lab L in [0, 100] with a and b roughly in [-128, 127], OKLab L in [0, 1] with a and b roughly in [-0.4, 0.4],
+ * OKLCH hue in degrees.
+ */
+public final class PerceptualColor {
+    /**
+     * Linear light of every 8-bit sRGB channel value.
+     */
+    private static final double[] LINEAR = new double[256];
+
+    /**
+     * LINEAR_THRESHOLDS[k] is the linear light of the encoded value (k + 0.5) / 255, the border between k and k + 1.
+     * Linear values outside of [LINEAR_MIN, LINEAR_MAX] would round to a channel outside of [0, 255].
+     */
+    private static final double[] LINEAR_THRESHOLDS = new double[255];
+    private static final double LINEAR_MIN = decode(-0.5 / 255);
+    private static final double LINEAR_MAX = decode(255.5 / 255);
+
+    /**
+     * D65 reference white and the constants of the CIELAB f function.
+     */
+    private static final double WHITE_X = 0.95047;
+    private static final double WHITE_Y = 1.0;
+    private static final double WHITE_Z = 1.08883;
+    private static final double DELTA = 6.0 / 29;
+    private static final double DELTA_CUBED = DELTA * DELTA * DELTA;
+    private static final double THREE_DELTA_SQUARED = 3 * DELTA * DELTA;
+
+    static {
+        for (int i = 0; i < LINEAR.length; i++) {
+            LINEAR[i] = decode(i / 255.0);
+        }
+
+        for (int i = 0; i < LINEAR_THRESHOLDS.length; i++) {
+            LINEAR_THRESHOLDS[i] = decode((i + 0.5) / 255);
+        }
+    }
+
+    /**
+     * Utility Class for perceptual color spaces.
+     */
+    private PerceptualColor() {}
+
+    /**
+     * Methods that convert a packed color into a perceptual color space. Write the three components into out[0..2].
+     * <br>
+     * <br>
+     * Source: <a href="https://en.wikipedia.org/wiki/CIELAB_color_space#From_CIEXYZ_to_CIELAB">Wikipedia: CIELAB color space</a>.
+     */
+    public static double[] rgbToLab(int rgb, double[] out) {
+        final double r = LINEAR[ColorEngine.red(rgb)];
+        final double g = LINEAR[ColorEngine.green(rgb)];
+        final double b = LINEAR[ColorEngine.blue(rgb)];
+
+        final double fx = labF((0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / WHITE_X);
+        final double fy = labF((0.2126729 * r + 0.7151522 * g + 0.0721750 * b) / WHITE_Y);
+        final double fz = labF((0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / WHITE_Z);
+
+        out[0] = 116 * fy - 16;
+        out[1] = 500 * (fx - fy);
+        out[2] = 200 * (fy - fz);
+
+        return out;
+    }
+
+    /**
+     * Source: <a href="https://bottosson.github.io/posts/oklab/">A perceptual color space for image processing</a>.
+     */
+    public static double[] rgbToOklab(int rgb, double[] out) {
+        final double r = LINEAR[ColorEngine.red(rgb)];
+        final double g = LINEAR[ColorEngine.green(rgb)];
+        final double b = LINEAR[ColorEngine.blue(rgb)];
+
+        final double l = Math.cbrt(0.4122214708 * r + 0.5363325363 * g + 0.0514459929 * b);
+        final double m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+        final double s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+
+        out[0] = 0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s;
+        out[1] = 1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s;
+        out[2] = 0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s;
+
+        return out;
+    }
+
+    /**
+     * Writes lightness, chroma and hue (in degrees, [0, 360)) into out[0..2].
+     */
+    public static double[] rgbToOklch(int rgb, double[] out) {
+        rgbToOklab(rgb, out);
+
+        final double a = out[1];
+        final double b = out[2];
+
+        out[1] = Math.sqrt(a * a + b * b);
+        out[2] = hueDegrees(a, b);
+
+        return out;
+    }
+
+    /**
+     * Methods that convert a perceptual color back into a packed color. Throw if it is outside of the sRGB gamut.
+     */
+    public static int labToRgb(double l, double a, double b) {
+        return checked(labToPacked(l, a, b), "Lab", l, a, b);
+    }
+
+    public static int oklabToRgb(double l, double a, double b) {
+        return checked(oklabToPacked(l, a, b), "OKLab", l, a, b);
+    }
+
+    public static int oklchToRgb(double l, double c, double h) {
+        return checked(oklchToPacked(l, c, h), "OKLCH", l, c, h);
+    }
+
+    /**
+     * Non-throwing variants of the methods above, return ColorEngine.OUT_OF_RANGE instead.
+     */
+    static int labToPacked(double l, double a, double b) {
+        final double fy = (l + 16) / 116;
+        final double x = labFInverse(fy + a / 500) * WHITE_X;
+        final double y = labFInverse(fy) * WHITE_Y;
+        final double z = labFInverse(fy - b / 200) * WHITE_Z;
+
+        return encode(
+                3.2404542 * x - 1.5371385 * y - 0.4985314 * z,
+                -0.9692660 * x + 1.8760108 * y + 0.0415560 * z,
+                0.0556434 * x - 0.2040259 * y + 1.0572252 * z);
+    }
+
+    static int oklabToPacked(double l, double a, double b) {
+        return oklabToPacked(l, a, b, false);
+    }
+
+    /**
+     * Like oklabToPacked, but clips each linear channel into the gamut instead of failing. Meant for mixes of
+     * in-gamut colors, which can land just outside of it.
+     */
+    static int oklabToClipped(double l, double a, double b) {
+        return oklabToPacked(l, a, b, true);
+    }
+
+    private static int oklabToPacked(double l, double a, double b, boolean clip) {
+        final double lc = l + 0.3963377774 * a + 0.2158037573 * b;
+        final double mc = l - 0.1055613458 * a - 0.0638541728 * b;
+        final double sc = l - 0.0894841775 * a - 1.2914855480 * b;
+
+        final double lin = lc * lc * lc;
+        final double min = mc * mc * mc;
+        final double sin = sc * sc * sc;
+
+        final double r = 4.0767416621 * lin - 3.3077115913 * min + 0.2309699292 * sin;
+        final double g = -1.2684380046 * lin + 2.6097574011 * min - 0.3413193965 * sin;
+        final double bl = -0.0041960863 * lin - 0.7034186147 * min + 1.7076147010 * sin;
+
+        return clip ? linearToClipped(r, g, bl) : encode(r, g, bl);
+    }
+
+    static int oklchToPacked(double l, double c, double h) {
+        final double radians = Math.toRadians(h);
+
+        return oklabToPacked(l, c * Math.cos(radians), c * Math.sin(radians));
+    }
+
+    /**
+     * Packs three linear channels, each clipped into [0, 1] first.
+     */
+    static int linearToClipped(double r, double g, double b) {
+        return encode(clip(r), clip(g), clip(b));
+    }
+
+    /**
+     * CIE76 color difference, the euclidean distance in Lab.
+     */
+    public static double deltaE(double l1, double a1, double b1, double l2, double a2, double b2) {
+        final double dl = l1 - l2;
+        final double da = a1 - a2;
+        final double db = b1 - b2;
+
+        return Math.sqrt(dl * dl + da * da + db * db);
+    }
+
+    /**
+     * Linear light of an 8-bit sRGB channel value.
+     */
+    static double linear(int channel) {
+        return LINEAR[channel];
+    }
+
+    /**
+     * Helper methods for the transfer function.
+     * <br>
+     * <br>
+     * Source: <a href="https://en.wikipedia.org/wiki/SRGB#From_sRGB_to_CIE_XYZ">Wikipedia: sRGB</a>.
+     * Only used to fill the tables. Negative values are mirrored like in the extended sRGB definition.
+     */
+    private static double decode(double encoded) {
+        if (encoded < 0) {
+            return -decode(-encoded);
+        }
+
+        return encoded <= 0.04045 ? encoded / 12.92 : Math.pow((encoded + 0.055) / 1.055, 2.4);
+    }
+
+    /**
+     * Packs three linear channels, each rounded to the nearest 8-bit sRGB value with a binary search in the thresholds.
+     */
+    private static int encode(double r, double g, double b) {
+        if (!inGamut(r) || !inGamut(g) || !inGamut(b)) {
+            return ColorEngine.OUT_OF_RANGE;
+        }
+
+        return (encodeChannel(r) << 16) | (encodeChannel(g) << 8) | encodeChannel(b);
+    }
+
+    private static double clip(double linear) {
+        return Math.max(0, Math.min(1, linear));
+    }
+
+    /**
+     * Also false for NaN.
+     */
+    private static boolean inGamut(double linear) {
+        return linear >= LINEAR_MIN && linear <= LINEAR_MAX;
+    }
+
+    /**
+     * Number of thresholds at or below the value, which is the channel value Math.round would give.
+     */
+    private static int encodeChannel(double linear) {
+        int low = 0;
+        int high = LINEAR_THRESHOLDS.length;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (LINEAR_THRESHOLDS[middle] <= linear) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Helper methods for the color spaces.
+     */
+    private static double labF(double t) {
+        return t > DELTA_CUBED ? Math.cbrt(t) : t / THREE_DELTA_SQUARED + 4.0 / 29;
+    }
+
+    private static double labFInverse(double t) {
+        return t > DELTA ? t * t * t : THREE_DELTA_SQUARED * (t - 4.0 / 29);
+    }
+
+    private static double hueDegrees(double a, double b) {
+        final double degrees = Math.toDegrees(Math.atan2(b, a));
+
+        return degrees < 0 ? degrees + 360 : degrees;
+    }
+
+    private static int checked(int rgb, String space, double first, double second, double third) {
+        if (rgb == ColorEngine.OUT_OF_RANGE) {
+            throw new IllegalArgumentException(space + " values outside of the sRGB gamut: " + first + ", " + second + ", " + third);
+        }
+
+        return rgb;
+    }
+}
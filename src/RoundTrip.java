@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Exhaustive round-trip check, started with "ColorCalc verify": every one of the 2^24 colors is formatted in the
+ * default style of a color space and parsed back, exactly like a user copying the output into the input.
+ * The cube is swept in parallel, split into runs of 64 colors so every thread owns whole words of the bit set.
+ * <br>
+ * <br>
+ * The error of a color is the largest difference of a channel (0 to 255) between the original and the result,
+ * a result that can't be parsed at all counts as 255.
+ */
+public final class RoundTrip {
+    private static final int COLORS = 1 << 24;
+    private static final int WORDS = COLORS / Long.SIZE;
+    private static final int MAX_ERROR = 255;
+    private static final int SHOWN_MISMATCHES = 5;
+
+    /**
+     * Utility Class for round-trip verification.
+     */
+    private RoundTrip() {}
+
+    /**
+     * Result for one color space. The bit of every color that doesn't come back unchanged is set in mismatches.
+     */
+    public record Report(ColorSpace space, int maxError, double meanError, long mismatchCount, long[] mismatches) {
+        public boolean mismatch(int rgb) {
+            return (mismatches[rgb >>> 6] & (1L << rgb)) != 0;
+        }
+
+        /**
+         * Writes every mismatching color with what it came back as, one "original -> result" per line in HEX.
+         */
+        public void write(Writer out) throws IOException {
+            final StringBuilder line = new StringBuilder(64);
+
+            for (int rgb = 0; rgb < COLORS; rgb++) {
+                if (mismatch(rgb)) {
+                    line.setLength(0);
+                    ColorFormatter.append(ColorSpace.HEX, 1, rgb, line).append(" -> ");
+                    appendResult(line, roundTrip(space, rgb, new StringBuilder(64)));
+                    out.append(line).append(System.lineSeparator());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sweeps all colors through the color space.
+     */
+    public static Report verify(ColorSpace space) {
+        final long[] mismatches = new long[WORDS];
+        final long[] totals = new long[3];
+
+        ColorBulk.forRange(WORDS, (from, to) -> {
+            final StringBuilder text = new StringBuilder(64);
+            long errorSum = 0;
+            long mismatchCount = 0;
+            int maxError = 0;
+
+            for (int word = from; word < to; word++) {
+                long bits = 0;
+
+                for (int bit = 0; bit < Long.SIZE; bit++) {
+                    final int rgb = word * Long.SIZE + bit;
+                    final int error = error(rgb, roundTrip(space, rgb, text));
+
+                    if (error != 0) {
+                        bits |= 1L << bit;
+                        errorSum += error;
+                        mismatchCount++;
+                        maxError = Math.max(maxError, error);
+                    }
+                }
+
+                mismatches[word] = bits;
+            }
+
+            synchronized (totals) {
+                totals[0] += errorSum;
+                totals[1] += mismatchCount;
+                totals[2] = Math.max(totals[2], maxError);
+            }
+        });
+
+        return new Report(space, (int) totals[2], (double) totals[0] / COLORS, totals[1], mismatches);
+    }
+
+    /**
+     * The largest channel error the default notation of the space causes by rounding: none for the integer
+     * notations, a few steps for the ones in whole degrees and percent. These are the errors of the current
+     * formatters and parsers, so verify fails as soon as a change makes any color come back worse.
+     */
+    public static int tolerance(ColorSpace space) {
+        return switch (space) {
+            case RGB, HEX, DEC -> 0;
+            case HSB_HSV -> 3;
+            case HSL -> 5;
+            case CMYK -> 2;
+        };
+    }
+
+    /**
+     * Verifies the color spaces, prints one line each (and a few mismatches) and returns the reports.
+     * All mismatches are also written to the output, if there is one.
+     */
+    public static Report[] run(ColorSpace[] spaces, Writer mismatches) throws IOException {
+        final Report[] reports = new Report[spaces.length];
+
+        System.out.printf(Locale.US, "%-10s %12s %14s %10s %12s %s%n", "Space", "mismatches", "share", "max error", "mean error", "examples");
+
+        for (int i = 0; i < spaces.length; i++) {
+            final ColorSpace space = spaces[i];
+            final long start = System.nanoTime();
+            final Report report = verify(space);
+            final double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf(Locale.US, "%-10s %12d %13.4f%% %10d %12.6f %s (%.1f s)%n",
+                    space.label(),
+                    report.mismatchCount(),
+                    100.0 * report.mismatchCount() / COLORS,
+                    report.maxError(),
+                    report.meanError(),
+                    examples(report),
+                    seconds);
+
+            reports[i] = report;
+
+            if (mismatches != null) {
+                mismatches.append("# ").append(space.label()).append(System.lineSeparator());
+                report.write(mismatches);
+            }
+        }
+
+        return reports;
+    }
+
+    /**
+     * Helper methods for a single color.
+     * <br>
+     * <br>
+     * The color after formatting and parsing, or a ColorParser error code.
+     */
+    private static int roundTrip(ColorSpace space, int rgb, StringBuilder text) {
+        text.setLength(0);
+
+        return space.tryParse(space.format(rgb, space.defaultStyle(), text));
+    }
+
+    private static int error(int rgb, int result) {
+        if (ColorParser.isError(result)) {
+            return MAX_ERROR;
+        }
+
+        return Math.max(Math.abs(ColorEngine.red(rgb) - ColorEngine.red(result)),
+                Math.max(Math.abs(ColorEngine.green(rgb) - ColorEngine.green(result)),
+                        Math.abs(ColorEngine.blue(rgb) - ColorEngine.blue(result))));
+    }
+
+    private static String examples(Report report) {
+        final StringBuilder examples = new StringBuilder();
+        int shown = 0;
+
+        for (int rgb = 0; rgb < COLORS && shown < SHOWN_MISMATCHES; rgb++) {
+            if (report.mismatch(rgb)) {
+                examples.append(shown++ == 0 ? "" : ", ");
+                ColorFormatter.append(ColorSpace.HEX, 1, rgb, examples).append(" -> ");
+                appendResult(examples, roundTrip(report.space(), rgb, new StringBuilder(64)));
+            }
+        }
+
+        return shown == 0 ? "-" : examples.toString();
+    }
+
+    private static void appendResult(StringBuilder out, int result) {
+        if (ColorParser.isError(result)) {
+            out.append("error ").append(result);
+        } else {
+            ColorFormatter.append(ColorSpace.HEX, 1, result, out);
+        }
+    }
+}
@@ -1,12 +1,20 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 
 public class UI extends JFrame {
     /**
@@ -25,6 +33,14 @@ public class UI extends JFrame {
     private static final Font NORMAL_FONT = new Font(Font.DIALOG, Font.PLAIN, 12);
     private static final Font MONOSPACED_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 14);
     private static final Insets INSETS = new Insets(5, 5, 5, 5);
+    private static final long DEBOUNCE_MILLIS = 150;
+    private static final long TITLE_RESET_MILLIS = 1500;
+
+    /**
+     * Background threads. Conversions run one after another on CONVERTER, TIMER only delays work for the EDT.
+     */
+    private static final ExecutorService CONVERTER = Executors.newSingleThreadExecutor(Thread.ofPlatform().daemon().name("ColorCalc converter").factory());
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("ColorCalc timer").factory());
 
     /**
      * UI elements.
@@ -41,7 +57,21 @@ public class UI extends JFrame {
     private final JTextField inputField = new JTextField(20);
     private final LineBorder normalBorder = new LineBorder(Color.BLACK);
     private final LineBorder errorBorder = new LineBorder(Color.RED, 2);
-    private final JLabel[][] outputLabels = new JLabel[6][];
+    private final JLabel[][] outputLabels = new JLabel[7][];
+
+    /**
+     * State of the background work, only touched on the EDT.
+     * <br>
+     * <br>
+     * Number of conversions started so far, a result is only shown if no newer one was started.
+     */
+    private long conversions = 0;
+    /**
+     * Color space of the last button used, null until then to detect it from the input.
+     */
+    private ColorSpace liveSpace = null;
+    private ScheduledFuture<?> pendingConversion;
+    private ScheduledFuture<?> pendingTitleReset;
 
     /**
      * Only public member of this class. Only allows a single instance to be loaded.
@@ -63,7 +93,7 @@ public class UI extends JFrame {
 
         setMainLayout();
 
-        createOutput(STARTUP_COLOR);
+        convert(STARTUP_COLOR.getRGB() & 0xFFFFFF);
 
         setVisible(true);
     }
@@ -84,6 +114,22 @@ public class UI extends JFrame {
         panel.add(inputField,       new GridBagConstraints(2, 1, 1, 1, 1, 1, GridBagConstraints.CENTER, GridBagConstraints.NONE, INSETS, 0, 0));
 
         inputField.setBorder(normalBorder);
+        inputField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                convertLater();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                convertLater();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                convertLater();
+            }
+        });
 
         return panel;
     }
@@ -103,77 +149,30 @@ public class UI extends JFrame {
                     return;
                 }
 
-                createOutput(color);
+                convert(color.getRGB() & 0xFFFFFF);
             }
         }), new GridBagConstraints(0, 0, 2, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
-        panel.add(new JButton(new AbstractAction("from RGB") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                try {
-                    final Color color = ColorCalc.rgbTupleToColor(inputField.getText());
-                    createOutput(color);
-                } catch (Exception ex) {
-                    setError();
-                }
-            }
-        }),      new GridBagConstraints(0, 1, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
-        panel.add(new JButton(new AbstractAction("from HEX") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                try {
-                    final Color color = ColorCalc.hexTocolor(inputField.getText());
-                    createOutput(color);
-                } catch (Exception ex) {
-                    setError();
-                }
-            }
-        }),      new GridBagConstraints(0, 2, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
-        panel.add(new JButton(new AbstractAction("from DEC") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                try {
-                    final Color color = ColorCalc.decToColor(inputField.getText());
-                    createOutput(color);
-                } catch (Exception ex) {
-                    setError();
-                }
-            }
-        }),      new GridBagConstraints(0, 3, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
-        panel.add(new JButton(new AbstractAction("from HSB/HSV") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                try {
-                    final Color color = ColorCalc.hsbhsvTupleToColor(inputField.getText());
-                    createOutput(color);
-                } catch (Exception ex) {
-                    setError();
-                }
-            }
-        }),  new GridBagConstraints(1, 1, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
-        panel.add(new JButton(new AbstractAction("from HSL") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                try {
-                    final Color color = ColorCalc.hslTupleToColor(inputField.getText());
-                    createOutput(color);
-                } catch (Exception ex) {
-                    setError();
-                }
-            }
-        }),      new GridBagConstraints(1, 2, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
-        panel.add(new JButton(new AbstractAction("from CMYK") {
+        panel.add(makeConvertButton(ColorSpace.RGB),     new GridBagConstraints(0, 1, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
+        panel.add(makeConvertButton(ColorSpace.HEX),     new GridBagConstraints(0, 2, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
+        panel.add(makeConvertButton(ColorSpace.DEC),     new GridBagConstraints(0, 3, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
+        panel.add(makeConvertButton(ColorSpace.HSB_HSV), new GridBagConstraints(1, 1, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
+        panel.add(makeConvertButton(ColorSpace.HSL),     new GridBagConstraints(1, 2, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
+        panel.add(makeConvertButton(ColorSpace.CMYK),    new GridBagConstraints(1, 3, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
+
+        return panel;
+    }
+
+    /**
+     * Button that converts the input from the color space and makes it the one used for live conversion.
+     */
+    private JButton makeConvertButton(ColorSpace space) {
+        return new JButton(new AbstractAction("from " + space.label()) {
             @Override
             public void actionPerformed(ActionEvent e) {
-                try {
-                    final Color color = ColorCalc.cmykTupleToColor(inputField.getText());
-                    createOutput(color);
-                } catch (Exception ex) {
-                    setError();
-                }
+                liveSpace = space;
+                convert(space, inputField.getText());
             }
-        }),     new GridBagConstraints(1, 3, 1, 1, 1, 0, GridBagConstraints.CENTER, GridBagConstraints.HORIZONTAL, INSETS, 0, 0));
-
-        return panel;
+        });
     }
 
     /**
@@ -254,8 +253,8 @@ public class UI extends JFrame {
         colorPanel.setBorder(new LineBorder(Color.BLACK, 2));
 
         final JPanel textOutput = new JPanel(new GridBagLayout());
-        final String[] titles = {"In RGB:", "In HEX:", "In DEC:", "In HSB/HSV:", "In HSL:", "In CMYK:"};
-        final int[] outputCounts = {2, 3, 1, 3, 3, 3};
+        final String[] titles = {"In RGB:", "In HEX:", "In DEC:", "In HSB/HSV:", "In HSL:", "In CMYK:", "Name:"};
+        final int[] outputCounts = {2, 3, 1, 3, 3, 3, 1};
         final GridBagConstraints constraints = new GridBagConstraints(GridBagConstraints.RELATIVE, 0, 1, 1, 1, 1, GridBagConstraints.WEST, GridBagConstraints.NONE, INSETS, 0, 0);
 
         for (int i = 0; i < titles.length; i++) {
@@ -312,43 +311,102 @@ public class UI extends JFrame {
     }
 
     /**
-     * Creates an output for the user, either by converting the color or by signaling a bad input.
-     * @param color Color to be converted into all color spaces.
+     * Methods that convert in the background. They may only be called on the EDT.
+     * <br>
+     * <br>
+     * Converts the input once the user stopped typing for DEBOUNCE_MILLIS, see liveSpace.
      */
-    private void createOutput(Color color) {
-        if (color != null) {
-            color = ColorCalc.removeAlpha(color);
+    private void convertLater() {
+        if (pendingConversion != null) {
+            pendingConversion.cancel(false);
+        }
+
+        final String text = inputField.getText();
+        final ColorSpace space = liveSpace;
+
+        if (text.isBlank()) {
+            conversions++;
             replenishError();
-            colorPanel.setBackground(color);
-            outputValues(color);
+
+            return;
+        }
+
+        pendingConversion = TIMER.schedule(() -> SwingUtilities.invokeLater(() -> convert(space, text)), DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void convert(ColorSpace space, String text) {
+        if (space == null) {
+            convert(() -> ColorParser.parseAny(text));
         } else {
-            setError();
+            convert(() -> ColorCache.shared().parse(space, text));
+        }
+    }
+
+    private void convert(int rgb) {
+        convert(() -> rgb);
+    }
+
+    /**
+     * Parses and formats on CONVERTER and hands the result back to the EDT, unless a newer conversion was started meanwhile.
+     */
+    private void convert(IntSupplier parser) {
+        if (pendingConversion != null) {
+            pendingConversion.cancel(false);
         }
 
+        final long conversion = ++conversions;
+
+        CONVERTER.execute(() -> {
+            final int rgb = parser.getAsInt();
+            final String[][] lines = ColorParser.isError(rgb) ? null : formatAll(rgb);
+
+            SwingUtilities.invokeLater(() -> {
+                if (conversion == conversions) {
+                    createOutput(rgb, lines);
+                }
+            });
+        });
     }
 
     /**
-     * Writes to the output panel.
+     * Creates an output for the user, either by showing the converted color or by signaling a bad input.
+     * @param rgb Packed color or a ColorParser error code.
+     * @param lines All notations of the color per color space, null for errors.
      */
-    private void outputValues(Color color) {
-        final String[][] output = {
-                ColorCalc.colorToRGB(color),
-                ColorCalc.colorToHEX(color),
-                ColorCalc.colorToDEC(color),
-                ColorCalc.colorToHSBHSV(color),
-                ColorCalc.colorToHSL(color),
-                ColorCalc.colorToCMYK(color)
-        };
-
-        for (int i = 0; i < output.length; i++) {
-            final String[] line = output[i];
-
-            for (int j = 0; j < line.length; j++) {
-                outputLabels[i][j].setText(line[j]);
+    private void createOutput(int rgb, String[][] lines) {
+        if (lines == null) {
+            setError();
+
+            return;
+        }
+
+        replenishError();
+        colorPanel.setBackground(new Color(rgb));
+
+        for (int i = 0; i < lines.length; i++) {
+            for (int j = 0; j < lines[i].length; j++) {
+                outputLabels[i][j].setText(lines[i][j]);
             }
         }
     }
 
+    /**
+     * All notations of the color in the order of the output panel, and its name (or "≈" the closest one). Runs on CONVERTER.
+     */
+    private static String[][] formatAll(int rgb) {
+        final ColorSpace[] spaces = ColorSpace.values();
+        final String[][] lines = new String[spaces.length + 1][];
+
+        for (int i = 0; i < spaces.length; i++) {
+            lines[i] = ColorCache.shared().format(spaces[i], rgb);
+        }
+
+        final String name = NamedColors.name(rgb);
+        lines[spaces.length] = new String[] {name != null ? name : "≈ " + NamedColors.nearestName(rgb)};
+
+        return lines;
+    }
+
     /**
      * Signals to the user when they did an illegal input.
      */
@@ -377,13 +435,10 @@ public class UI extends JFrame {
 
         setTitle(TITLE + " (copied to clipboard)");
 
-        new Thread(() -> {
-            try {
-                Thread.sleep(1500);
-            } catch (InterruptedException ignored) {
-            } finally {
-                setTitle(TITLE);
-            }
-        }).start();
+        if (pendingTitleReset != null) {
+            pendingTitleReset.cancel(false);
+        }
+
+        pendingTitleReset = TIMER.schedule(() -> SwingUtilities.invokeLater(() -> setTitle(TITLE)), TITLE_RESET_MILLIS, TimeUnit.MILLISECONDS);
     }
 }
\ No newline at end of file